@@ -0,0 +1,152 @@
+package de.mkammerer.argon2.async;
+
+import de.mkammerer.argon2.Argon2Advanced;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Argon2 functions which run on an executor and return a {@link CompletableFuture}, so that they can be called from
+ * threads which must not block, e.g. the event loop of Netty or Vert.x.
+ * <p>
+ * The passwords are copied when the method is called and the copy is wiped after the hash, so the caller can wipe its
+ * array right away. If the executor rejects the task, the returned future fails with a
+ * {@link java.util.concurrent.RejectedExecutionException}.
+ * <p>
+ * All implementing classes need to be thread safe.
+ */
+public interface Argon2Async {
+    /**
+     * Hashes a password.
+     * <p>
+     * Uses UTF-8 encoding.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to hash
+     * @return Future with the hashed password.
+     */
+    CompletableFuture<String> hashAsync(int iterations, int memory, int parallelism, char[] password);
+
+    /**
+     * Hashes a password.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to hash
+     * @param charset     Charset of the password
+     * @return Future with the hashed password.
+     */
+    CompletableFuture<String> hashAsync(int iterations, int memory, int parallelism, char[] password, Charset charset);
+
+    /**
+     * Hashes the given data.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param data        Data to hash
+     * @return Future with the hashed data.
+     */
+    CompletableFuture<String> hashAsync(int iterations, int memory, int parallelism, byte[] data);
+
+    /**
+     * Verifies a password against a hash.
+     * <p>
+     * Uses UTF-8 encoding.
+     *
+     * @param hash     Hash
+     * @param password Password
+     * @return Future with true if the password matches the hash, false otherwise.
+     */
+    CompletableFuture<Boolean> verifyAsync(String hash, char[] password);
+
+    /**
+     * Verifies a password against a hash.
+     *
+     * @param hash     Hash
+     * @param password Password
+     * @param charset  Charset of the password
+     * @return Future with true if the password matches the hash, false otherwise.
+     */
+    CompletableFuture<Boolean> verifyAsync(String hash, char[] password, Charset charset);
+
+    /**
+     * Verifies the given data against a hash.
+     *
+     * @param hash Hash
+     * @param data Data
+     * @return Future with true if the data matches the hash, false otherwise.
+     */
+    CompletableFuture<Boolean> verifyAsync(String hash, byte[] data);
+
+    /**
+     * Hashes a password and returns the raw bytes.
+     * <p>
+     * Uses UTF-8 encoding.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to hash
+     * @param salt        Salt to use
+     * @return Future with the hashed password in raw bytes.
+     */
+    CompletableFuture<byte[]> rawHashAsync(int iterations, int memory, int parallelism, char[] password, byte[] salt);
+
+    /**
+     * Hashes the given data and returns the raw bytes.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param data        Data to hash
+     * @param salt        Salt to use
+     * @return Future with the hashed data in raw bytes.
+     */
+    CompletableFuture<byte[]> rawHashAsync(int iterations, int memory, int parallelism, byte[] data, byte[] salt);
+
+    /**
+     * Derives a key from a password, see {@link Argon2Advanced#pbkdf(int, int, int, char[], Charset, byte[], int)}.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password
+     * @param charset     Charset of the password
+     * @param salt        Salt
+     * @param keyLength   Length of the key in bytes
+     * @return Future with the key.
+     */
+    CompletableFuture<byte[]> pbkdfAsync(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, int keyLength);
+
+    /**
+     * Derives a key from a password, see {@link Argon2Advanced#pbkdf(int, int, int, byte[], byte[], int)}.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password
+     * @param salt        Salt
+     * @param keyLength   Length of the key in bytes
+     * @return Future with the key.
+     */
+    CompletableFuture<byte[]> pbkdfAsync(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int keyLength);
+
+    /**
+     * Returns the instance which computes the hashes, e.g. for {@link Argon2Advanced#needsRehash(String, int, int, int)}.
+     *
+     * @return Blocking Argon2 instance.
+     */
+    Argon2Advanced getArgon2();
+
+    /**
+     * Returns the executor on which the hashes run.
+     *
+     * @return Executor.
+     */
+    Executor getExecutor();
+}
@@ -0,0 +1,91 @@
+package de.mkammerer.argon2.async;
+
+import de.mkammerer.argon2.Argon2Advanced;
+import de.mkammerer.argon2.Argon2Factory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for {@link Argon2Async} instances.
+ */
+public final class Argon2AsyncFactory {
+    /**
+     * Number of tasks which may wait in the default executor per worker thread.
+     */
+    private static final int DEFAULT_QUEUE_CAPACITY_PER_THREAD = 256;
+
+    /**
+     * Static class, no instances allowed.
+     */
+    private Argon2AsyncFactory() {
+    }
+
+    /**
+     * Creates a new {@link Argon2Async} instance with the given type, which runs on the default executor.
+     *
+     * @param type Argon2 type.
+     * @return Argon2Async instance.
+     * @see #defaultExecutor()
+     */
+    public static Argon2Async create(Argon2Factory.Argon2Types type) {
+        return create(Argon2Factory.createAdvanced(type));
+    }
+
+    /**
+     * Creates a new {@link Argon2Async} instance, which runs the given instance on the default executor.
+     *
+     * @param argon2 Instance which computes the hashes, e.g. from {@link Argon2Factory}.
+     * @return Argon2Async instance.
+     * @see #defaultExecutor()
+     */
+    public static Argon2Async create(Argon2Advanced argon2) {
+        return create(argon2, defaultExecutor());
+    }
+
+    /**
+     * Creates a new {@link Argon2Async} instance, which runs the given instance on the given executor.
+     * <p>
+     * The executor should have a bounded number of threads: more hashes at the same time than CPUs only cost memory.
+     *
+     * @param argon2   Instance which computes the hashes, e.g. from {@link Argon2Factory}.
+     * @param executor Executor on which the hashes run.
+     * @return Argon2Async instance.
+     */
+    public static Argon2Async create(Argon2Advanced argon2, Executor executor) {
+        if (argon2 == null) throw new IllegalArgumentException("argon2 must not be null");
+        if (executor == null) throw new IllegalArgumentException("executor must not be null");
+        return new ExecutorArgon2Async(argon2, executor);
+    }
+
+    /**
+     * Returns the executor which is shared by all instances which have been created without an executor. It has one
+     * daemon thread per available processor and queues up to 256 tasks per thread. Further tasks are rejected.
+     *
+     * @return Default executor.
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Creates the default executor when it's used for the first time.
+     */
+    private static final class DefaultExecutorHolder {
+        private static final Executor EXECUTOR = createDefaultExecutor();
+
+        private static Executor createDefaultExecutor() {
+            int threads = Runtime.getRuntime().availableProcessors();
+            AtomicInteger counter = new AtomicInteger();
+            return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * DEFAULT_QUEUE_CAPACITY_PER_THREAD), runnable -> {
+                Thread thread = new Thread(runnable, "argon2-async-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package de.mkammerer.argon2.async;
+
+import de.mkammerer.argon2.Argon2Advanced;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * {@link Argon2Async} which runs the blocking methods of an {@link Argon2Advanced} instance on an executor.
+ */
+final class ExecutorArgon2Async implements Argon2Async {
+    private final Argon2Advanced argon2;
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param argon2   Instance which computes the hashes.
+     * @param executor Executor on which the hashes run.
+     */
+    ExecutorArgon2Async(Argon2Advanced argon2, Executor executor) {
+        this.argon2 = argon2;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<String> hashAsync(int iterations, int memory, int parallelism, char[] password) {
+        return hashAsync(iterations, memory, parallelism, password, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public CompletableFuture<String> hashAsync(int iterations, int memory, int parallelism, char[] password, Charset charset) {
+        char[] copy = password.clone();
+        return run(() -> {
+            try {
+                return argon2.hash(iterations, memory, parallelism, copy, charset);
+            } finally {
+                argon2.wipeArray(copy);
+            }
+        }, copy);
+    }
+
+    @Override
+    public CompletableFuture<String> hashAsync(int iterations, int memory, int parallelism, byte[] data) {
+        byte[] copy = data.clone();
+        return run(() -> {
+            try {
+                return argon2.hash(iterations, memory, parallelism, copy);
+            } finally {
+                argon2.wipeArray(copy);
+            }
+        }, copy);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> verifyAsync(String hash, char[] password) {
+        return verifyAsync(hash, password, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> verifyAsync(String hash, char[] password, Charset charset) {
+        char[] copy = password.clone();
+        return run(() -> {
+            try {
+                return argon2.verify(hash, copy, charset);
+            } finally {
+                argon2.wipeArray(copy);
+            }
+        }, copy);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> verifyAsync(String hash, byte[] data) {
+        byte[] copy = data.clone();
+        return run(() -> {
+            try {
+                return argon2.verify(hash, copy);
+            } finally {
+                argon2.wipeArray(copy);
+            }
+        }, copy);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> rawHashAsync(int iterations, int memory, int parallelism, char[] password, byte[] salt) {
+        char[] copy = password.clone();
+        return run(() -> {
+            try {
+                return argon2.rawHash(iterations, memory, parallelism, copy, salt);
+            } finally {
+                argon2.wipeArray(copy);
+            }
+        }, copy);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> rawHashAsync(int iterations, int memory, int parallelism, byte[] data, byte[] salt) {
+        byte[] copy = data.clone();
+        return run(() -> {
+            try {
+                return argon2.rawHash(iterations, memory, parallelism, copy, salt);
+            } finally {
+                argon2.wipeArray(copy);
+            }
+        }, copy);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> pbkdfAsync(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, int keyLength) {
+        char[] copy = password.clone();
+        return run(() -> {
+            try {
+                return argon2.pbkdf(iterations, memory, parallelism, copy, charset, salt, keyLength);
+            } finally {
+                argon2.wipeArray(copy);
+            }
+        }, copy);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> pbkdfAsync(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int keyLength) {
+        byte[] copy = password.clone();
+        return run(() -> {
+            try {
+                return argon2.pbkdf(iterations, memory, parallelism, copy, salt, keyLength);
+            } finally {
+                argon2.wipeArray(copy);
+            }
+        }, copy);
+    }
+
+    @Override
+    public Argon2Advanced getArgon2() {
+        return argon2;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Runs the task on the executor.
+     *
+     * @param task     Task.
+     * @param password Copy of the password, which is wiped if the executor rejects the task.
+     * @param <T>      Type of the result.
+     * @return Future with the result of the task.
+     */
+    private <T> CompletableFuture<T> run(Supplier<T> task, char[] password) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            argon2.wipeArray(password);
+            return failed(e);
+        }
+    }
+
+    /**
+     * Runs the task on the executor.
+     *
+     * @param task     Task.
+     * @param password Copy of the password, which is wiped if the executor rejects the task.
+     * @param <T>      Type of the result.
+     * @return Future with the result of the task.
+     */
+    private <T> CompletableFuture<T> run(Supplier<T> task, byte[] password) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            argon2.wipeArray(password);
+            return failed(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+}
@@ -0,0 +1,57 @@
+package de.mkammerer.argon2.async;
+
+import de.mkammerer.argon2.Argon2Factory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Argon2AsyncTest {
+    @Test
+    public void testHashAndVerify() throws Exception {
+        Argon2Async argon2 = Argon2AsyncFactory.create(Argon2Factory.Argon2Types.ARGON2id);
+
+        char[] password = "password".toCharArray();
+        String hash = argon2.hashAsync(1, 1024, 1, password).get();
+        // The password has been copied
+        assertThat(password).isEqualTo("password".toCharArray());
+
+        assertThat(argon2.verifyAsync(hash, "password".toCharArray()).get()).isTrue();
+        assertThat(argon2.verifyAsync(hash, "password".getBytes(StandardCharsets.UTF_8)).get()).isTrue();
+        assertThat(argon2.verifyAsync(hash, "not-the-password".toCharArray()).get()).isFalse();
+        assertThat(argon2.getArgon2().verify(hash, "password".toCharArray())).isTrue();
+    }
+
+    @Test
+    public void testRawHashAndPbkdf() throws Exception {
+        Argon2Async argon2 = Argon2AsyncFactory.create(Argon2Factory.Argon2Types.ARGON2id);
+        byte[] salt = argon2.getArgon2().generateSalt();
+        byte[] password = "password".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(argon2.rawHashAsync(1, 1024, 1, password, salt).get()).isEqualTo(argon2.getArgon2().rawHash(1, 1024, 1, password, salt));
+        assertThat(argon2.pbkdfAsync(1, 1024, 1, password, salt, 64).get()).isEqualTo(argon2.getArgon2().pbkdf(1, 1024, 1, password, salt, 64));
+    }
+
+    @Test
+    public void testOwnExecutor() throws Exception {
+        Argon2Async argon2 = Argon2AsyncFactory.create(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2i), Runnable::run);
+
+        String hash = argon2.hashAsync(1, 1024, 1, "password".toCharArray()).get();
+        assertThat(hash).startsWith("$argon2i$");
+    }
+
+    @Test
+    public void testRejected() {
+        Argon2Async argon2 = Argon2AsyncFactory.create(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id), runnable -> {
+            throw new RejectedExecutionException("Full");
+        });
+
+        assertThatThrownBy(() -> argon2.verifyAsync("hash", "password".toCharArray()).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+}
@@ -0,0 +1,134 @@
+package de.mkammerer.argon2.benchmark;
+
+import de.mkammerer.argon2.Argon2Advanced;
+import de.mkammerer.argon2.Argon2Factory;
+import de.mkammerer.argon2.Argon2Version;
+import de.mkammerer.argon2.HashResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks every hash and verify entry point of {@link Argon2Advanced}.
+ * <p>
+ * Subclasses only decide on the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public abstract class AbstractArgon2Benchmark {
+    private static final int KEY_LENGTH = 32;
+
+    /**
+     * Implementation which computes the hashes.
+     */
+    public enum Implementation {
+        /**
+         * libargon2, called through JNA.
+         */
+        NATIVE,
+        /**
+         * Pure Java implementation.
+         */
+        JAVA
+    }
+
+    @Param({"NATIVE", "JAVA"})
+    public Implementation implementation;
+
+    @Param({"ARGON2i", "ARGON2d", "ARGON2id"})
+    public Argon2Factory.Argon2Types type;
+
+    @Param({"8192", "65536"})
+    public int memory;
+
+    @Param({"1", "3"})
+    public int iterations;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private Argon2Advanced argon2;
+    private char[] password;
+    private byte[] passwordBytes;
+    private byte[] salt;
+    private byte[] secret;
+    private byte[] associatedData;
+    private String encoded;
+    private byte[] rawHashAdvanced;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        argon2 = implementation == Implementation.JAVA
+                ? Argon2Factory.createJavaAdvanced(type)
+                : Argon2Factory.createAdvanced(type);
+        password = "benchmark-password".toCharArray();
+        passwordBytes = "benchmark-password".getBytes(StandardCharsets.UTF_8);
+        salt = argon2.generateSalt();
+        secret = "benchmark-secret".getBytes(StandardCharsets.UTF_8);
+        associatedData = "benchmark-associated-data".getBytes(StandardCharsets.UTF_8);
+
+        encoded = argon2.hash(iterations, memory, parallelism, password);
+        rawHashAdvanced = argon2.rawHashAdvanced(iterations, memory, parallelism, passwordBytes, salt, secret,
+                associatedData, KEY_LENGTH, Argon2Version.DEFAULT_VERSION);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        argon2.wipeArray(password);
+        argon2.wipeArray(passwordBytes);
+    }
+
+    @Benchmark
+    public String hash() {
+        return argon2.hash(iterations, memory, parallelism, password);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return argon2.verify(encoded, password);
+    }
+
+    @Benchmark
+    public byte[] rawHash() {
+        return argon2.rawHash(iterations, memory, parallelism, password, salt);
+    }
+
+    @Benchmark
+    public byte[] pbkdf() {
+        return argon2.pbkdf(iterations, memory, parallelism, passwordBytes, salt, KEY_LENGTH);
+    }
+
+    @Benchmark
+    public HashResult hashAdvanced() {
+        return argon2.hashAdvanced(iterations, memory, parallelism, passwordBytes, salt, KEY_LENGTH, Argon2Version.DEFAULT_VERSION);
+    }
+
+    @Benchmark
+    public byte[] rawHashAdvanced() {
+        return argon2.rawHashAdvanced(iterations, memory, parallelism, passwordBytes, salt, secret, associatedData,
+                KEY_LENGTH, Argon2Version.DEFAULT_VERSION);
+    }
+
+    @Benchmark
+    public boolean verifyAdvanced() {
+        return argon2.verifyAdvanced(iterations, memory, parallelism, passwordBytes, salt, secret, associatedData,
+                KEY_LENGTH, Argon2Version.DEFAULT_VERSION, rawHashAdvanced);
+    }
+}
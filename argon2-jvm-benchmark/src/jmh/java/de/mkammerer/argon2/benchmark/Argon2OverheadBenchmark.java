@@ -0,0 +1,142 @@
+package de.mkammerer.argon2.benchmark;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import de.mkammerer.argon2.Argon2Advanced;
+import de.mkammerer.argon2.Argon2Factory;
+import de.mkammerer.argon2.Argon2Version;
+import de.mkammerer.argon2.jna.Argon2Library;
+import de.mkammerer.argon2.jna.Argon2_context;
+import de.mkammerer.argon2.jna.JnaUint32;
+import de.mkammerer.argon2.jna.Size_t;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Separates the JVM-side overhead of argon2-jvm from the libargon2 compute time.
+ * <p>
+ * Uses the cheapest parameters libargon2 accepts, so the native computation is as small as possible. Each
+ * {@code argon2*} benchmark goes through the public API, each {@code jna*} benchmark calls the JNA binding with
+ * arguments which have been prepared once. The difference between the two is the time and the allocation (see
+ * {@code gc.alloc.rate.norm}) spent in argon2-jvm around the native call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Argon2OverheadBenchmark {
+    private static final int ITERATIONS = 1;
+    private static final int MEMORY = 8;
+    private static final int PARALLELISM = 1;
+    private static final int HASH_LENGTH = 32;
+
+    private Argon2Advanced argon2;
+    private char[] password;
+    private byte[] passwordBytes;
+    private byte[] salt;
+    private String encoded;
+
+    private JnaUint32 jnaIterations;
+    private JnaUint32 jnaMemory;
+    private JnaUint32 jnaParallelism;
+    private Size_t jnaPasswordLength;
+    private Size_t jnaSaltLength;
+    private Size_t jnaHashLength;
+    private byte[] encodedBuffer;
+    private Size_t jnaEncodedLength;
+    private byte[] encodedWithTerminator;
+    private byte[] hashBuffer;
+    private Argon2_context.ByReference context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+        password = "benchmark-password".toCharArray();
+        passwordBytes = "benchmark-password".getBytes(StandardCharsets.UTF_8);
+        salt = argon2.generateSalt();
+        encoded = argon2.hash(ITERATIONS, MEMORY, PARALLELISM, password);
+
+        jnaIterations = new JnaUint32(ITERATIONS);
+        jnaMemory = new JnaUint32(MEMORY);
+        jnaParallelism = new JnaUint32(PARALLELISM);
+        jnaPasswordLength = new Size_t(passwordBytes.length);
+        jnaSaltLength = new Size_t(salt.length);
+        jnaHashLength = new Size_t(HASH_LENGTH);
+        encodedBuffer = new byte[encoded.length() + 1];
+        jnaEncodedLength = new Size_t(encodedBuffer.length);
+        encodedWithTerminator = Native.toByteArray(encoded, "ASCII");
+        hashBuffer = new byte[HASH_LENGTH];
+
+        context = new Argon2_context.ByReference();
+        context.out = new Memory(HASH_LENGTH);
+        context.outlen = new JnaUint32(HASH_LENGTH);
+        context.pwd = new Memory(passwordBytes.length);
+        context.pwd.write(0, passwordBytes, 0, passwordBytes.length);
+        context.pwdlen = new JnaUint32(passwordBytes.length);
+        context.salt = new Memory(salt.length);
+        context.salt.write(0, salt, 0, salt.length);
+        context.saltlen = new JnaUint32(salt.length);
+        context.t_cost = jnaIterations;
+        context.m_cost = jnaMemory;
+        context.lanes = jnaParallelism;
+        context.threads = jnaParallelism;
+        context.version = Argon2Version.DEFAULT_VERSION.getJnaType();
+    }
+
+    @Benchmark
+    public String argon2Hash() {
+        return argon2.hash(ITERATIONS, MEMORY, PARALLELISM, password);
+    }
+
+    @Benchmark
+    public int jnaHash() {
+        return Argon2Library.INSTANCE.argon2id_hash_encoded(jnaIterations, jnaMemory, jnaParallelism,
+                passwordBytes, jnaPasswordLength, salt, jnaSaltLength, jnaHashLength, encodedBuffer, jnaEncodedLength);
+    }
+
+    @Benchmark
+    public boolean argon2Verify() {
+        return argon2.verify(encoded, password);
+    }
+
+    @Benchmark
+    public int jnaVerify() {
+        return Argon2Library.INSTANCE.argon2id_verify(encodedWithTerminator, passwordBytes, jnaPasswordLength);
+    }
+
+    @Benchmark
+    public byte[] argon2RawHash() {
+        return argon2.rawHash(ITERATIONS, MEMORY, PARALLELISM, passwordBytes, salt);
+    }
+
+    @Benchmark
+    public int jnaRawHash() {
+        return Argon2Library.INSTANCE.argon2id_hash_raw(jnaIterations, jnaMemory, jnaParallelism,
+                passwordBytes, jnaPasswordLength, salt, jnaSaltLength, hashBuffer, jnaHashLength);
+    }
+
+    @Benchmark
+    public byte[] argon2RawHashAdvanced() {
+        return argon2.rawHashAdvanced(ITERATIONS, MEMORY, PARALLELISM, passwordBytes, salt, null, null,
+                HASH_LENGTH, Argon2Version.DEFAULT_VERSION);
+    }
+
+    @Benchmark
+    public int jnaContext() {
+        return Argon2Library.INSTANCE.argon2id_ctx(context);
+    }
+}
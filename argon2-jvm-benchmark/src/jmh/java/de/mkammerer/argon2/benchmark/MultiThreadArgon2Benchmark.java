@@ -0,0 +1,10 @@
+package de.mkammerer.argon2.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Runs the {@link AbstractArgon2Benchmark} benchmarks on one thread per available processor.
+ */
+@Threads(Threads.MAX)
+public class MultiThreadArgon2Benchmark extends AbstractArgon2Benchmark {
+}
@@ -0,0 +1,10 @@
+package de.mkammerer.argon2.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Runs the {@link AbstractArgon2Benchmark} benchmarks on a single thread.
+ */
+@Threads(1)
+public class SingleThreadArgon2Benchmark extends AbstractArgon2Benchmark {
+}
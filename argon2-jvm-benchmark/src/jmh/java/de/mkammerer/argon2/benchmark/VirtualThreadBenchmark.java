@@ -0,0 +1,96 @@
+package de.mkammerer.argon2.benchmark;
+
+import de.mkammerer.argon2.Argon2;
+import de.mkammerer.argon2.Argon2Factory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many short tasks the virtual thread carriers run while other virtual threads hash passwords, with and
+ * without {@link Argon2Factory#setVirtualThreadOffload(int)}.
+ * <p>
+ * Without offloading, every hashing virtual thread pins a carrier for the whole hash, so the short tasks wait for a
+ * free carrier. With offloading, the hashing virtual threads park and the carriers stay free. Needs a Java 21 or later
+ * JVM ({@code -PjmhJvm}). On older JVMs, platform threads are used and both variants show the same throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djdk.virtualThreadScheduler.parallelism=2"})
+public class VirtualThreadBenchmark {
+    private static final int ITERATIONS = 3;
+    private static final int MEMORY = 32768;
+    private static final int PARALLELISM = 1;
+
+    /**
+     * Virtual threads which hash all the time, more than carriers.
+     */
+    private static final int HASHING_THREADS = 4;
+
+    /**
+     * Platform threads for the offloading, 0 disables it.
+     */
+    @Param({"0", "2"})
+    public int offloadThreads;
+
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Argon2Factory.setVirtualThreadOffload(offloadThreads);
+        executor = newVirtualThreadPerTaskExecutor();
+
+        Argon2 argon2 = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2id);
+        String hash = argon2.hash(ITERATIONS, MEMORY, PARALLELISM, "benchmark-password".toCharArray());
+
+        running = true;
+        for (int i = 0; i < HASHING_THREADS; i++) {
+            executor.execute(() -> {
+                while (running) {
+                    argon2.verify(hash, "benchmark-password".toCharArray());
+                }
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        Argon2Factory.setVirtualThreadOffload(0);
+    }
+
+    @Benchmark
+    public int shortTask() throws ExecutionException, InterruptedException {
+        return executor.submit(() -> 1).get();
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            // The benchmarks are compiled for Java 11
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
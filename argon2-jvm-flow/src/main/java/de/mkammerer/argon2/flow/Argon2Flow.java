@@ -0,0 +1,127 @@
+package de.mkammerer.argon2.flow;
+
+import de.mkammerer.argon2.Argon2Advanced;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for {@link Flow.Processor}s which hash and verify passwords.
+ * <p>
+ * Calling the blocking Argon2 methods in a {@code map} stage of a reactive pipeline ignores backpressure: a fast
+ * upstream piles up passwords while the hashes run. The processors of this class run at most {@code maxConcurrency}
+ * hashes at the same time on an executor, and request new passwords from upstream only when a hash has finished and
+ * the downstream subscriber has asked for more results. So at most {@code maxConcurrency} passwords are held in
+ * memory. The results are emitted in the order of the passwords.
+ * <p>
+ * The processors wipe the password arrays after hashing them. Every processor can be subscribed to by one subscriber.
+ * A failed hash fails the stream and cancels the upstream subscription.
+ */
+public final class Argon2Flow {
+    /**
+     * Static class, no instances allowed.
+     */
+    private Argon2Flow() {
+    }
+
+    /**
+     * Creates a processor which hashes passwords into encoded hashes, with one hash per available processor on the
+     * default executor.
+     *
+     * @param argon2      Instance which computes the hashes.
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @return Processor from passwords (encoded as UTF-8) to encoded hashes.
+     * @see #defaultExecutor()
+     */
+    public static Flow.Processor<char[], String> hashing(Argon2Advanced argon2, int iterations, int memory, int parallelism) {
+        return hashing(argon2, iterations, memory, parallelism, defaultExecutor(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a processor which hashes passwords into encoded hashes.
+     *
+     * @param argon2         Instance which computes the hashes.
+     * @param iterations     Number of iterations
+     * @param memory         Sets memory usage to x kibibytes
+     * @param parallelism    Number of threads and compute lanes
+     * @param executor       Executor on which the hashes run.
+     * @param maxConcurrency Maximum number of hashes at the same time.
+     * @return Processor from passwords (encoded as UTF-8) to encoded hashes.
+     */
+    public static Flow.Processor<char[], String> hashing(Argon2Advanced argon2, int iterations, int memory, int parallelism,
+                                                         Executor executor, int maxConcurrency) {
+        if (argon2 == null) throw new IllegalArgumentException("argon2 must not be null");
+
+        return new Argon2Processor<>(password -> {
+            try {
+                return argon2.hash(iterations, memory, parallelism, password, StandardCharsets.UTF_8);
+            } finally {
+                argon2.wipeArray(password);
+            }
+        }, argon2::wipeArray, executor, maxConcurrency);
+    }
+
+    /**
+     * Creates a processor which verifies passwords against hashes, with one verification per available processor on
+     * the default executor.
+     *
+     * @param argon2 Instance which verifies the passwords.
+     * @return Processor from verify requests to verdicts: true if the password matches the hash, false otherwise.
+     * @see #defaultExecutor()
+     */
+    public static Flow.Processor<VerifyRequest, Boolean> verifying(Argon2Advanced argon2) {
+        return verifying(argon2, defaultExecutor(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a processor which verifies passwords against hashes.
+     *
+     * @param argon2         Instance which verifies the passwords.
+     * @param executor       Executor on which the verifications run.
+     * @param maxConcurrency Maximum number of verifications at the same time.
+     * @return Processor from verify requests to verdicts: true if the password matches the hash, false otherwise.
+     */
+    public static Flow.Processor<VerifyRequest, Boolean> verifying(Argon2Advanced argon2, Executor executor, int maxConcurrency) {
+        if (argon2 == null) throw new IllegalArgumentException("argon2 must not be null");
+
+        return new Argon2Processor<>(request -> {
+            try {
+                return argon2.verify(request.getHash(), request.getPassword(), StandardCharsets.UTF_8);
+            } finally {
+                argon2.wipeArray(request.getPassword());
+            }
+        }, request -> argon2.wipeArray(request.getPassword()), executor, maxConcurrency);
+    }
+
+    /**
+     * Returns the executor which is shared by all processors which have been created without an executor. It has one
+     * daemon thread per available processor.
+     *
+     * @return Default executor.
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Creates the default executor when it's used for the first time.
+     */
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService EXECUTOR = createDefaultExecutor();
+
+        private static ExecutorService createDefaultExecutor() {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "argon2-flow-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
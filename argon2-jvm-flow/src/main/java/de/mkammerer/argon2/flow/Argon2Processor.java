@@ -0,0 +1,293 @@
+package de.mkammerer.argon2.flow;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link Flow.Processor} which applies a blocking function to every item on an executor and emits the results in the
+ * order of the items.
+ * <p>
+ * An item is in flight from the moment it has been requested from upstream until its result has been emitted, so
+ * results which wait for downstream demand count as well. At most {@code maxConcurrency} items are in flight, and items
+ * are only requested while the downstream subscriber has outstanding demand for them. All signals to the downstream
+ * subscriber are sent from {@link #drain()}, which runs on one thread at a time.
+ *
+ * @param <T> Type of the items.
+ * @param <R> Type of the results.
+ */
+final class Argon2Processor<T, R> implements Flow.Processor<T, R> {
+    private final Function<T, R> function;
+    private final Consumer<T> discard;
+    private final Executor executor;
+    private final int maxConcurrency;
+
+    /**
+     * Items in the order in which they have arrived, with their results once they are done.
+     */
+    private final Queue<Slot<R>> slots = new ConcurrentLinkedQueue<>();
+
+    private final AtomicReference<Flow.Subscriber<? super R>> subscriber = new AtomicReference<>();
+    private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+
+    /**
+     * Demand of the downstream subscriber which hasn't been satisfied yet.
+     */
+    private final AtomicLong requested = new AtomicLong();
+
+    /**
+     * Items which have been requested from upstream, but whose results haven't been emitted yet.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Number of {@link #drain()} calls which are running or missed, see there.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * First failure of a function or of the downstream subscriber, which fails the stream.
+     */
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    private volatile boolean subscribed;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+
+    /**
+     * Set once the stream has been cancelled or terminated. Nothing is emitted afterwards.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor.
+     *
+     * @param function       Function which computes the result of an item. Runs on the executor.
+     * @param discard        Called with the items which are dropped without passing them to the function.
+     * @param executor       Executor on which the function runs.
+     * @param maxConcurrency Maximum number of items in flight.
+     */
+    Argon2Processor(Function<T, R> function, Consumer<T> discard, Executor executor, int maxConcurrency) {
+        if (executor == null) throw new IllegalArgumentException("executor must not be null");
+        if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be >= 1");
+
+        this.function = function;
+        this.discard = discard;
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> s) {
+        Objects.requireNonNull(s, "subscriber");
+        if (!subscriber.compareAndSet(null, s)) {
+            s.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    // Nothing to do
+                }
+
+                @Override
+                public void cancel() {
+                    // Nothing to do
+                }
+            });
+            s.onError(new IllegalStateException("Only one subscriber is supported"));
+            return;
+        }
+
+        s.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    error.compareAndSet(null, new IllegalArgumentException("n must be > 0"));
+                } else {
+                    addDemand(n);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                Argon2Processor.this.cancel();
+            }
+        });
+        // Results are only emitted after onSubscribe has returned, so they can't overlap with it
+        subscribed = true;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription, "subscription");
+        if (!upstream.compareAndSet(null, subscription) || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(final T item) {
+        Objects.requireNonNull(item, "item");
+        if (cancelled) {
+            discard.accept(item);
+            return;
+        }
+
+        final Slot<R> slot = new Slot<>();
+        slots.offer(slot);
+        try {
+            executor.execute(() -> {
+                try {
+                    slot.complete(function.apply(item), null);
+                } catch (Throwable e) {
+                    slot.complete(null, e);
+                }
+                drain();
+            });
+        } catch (RejectedExecutionException e) {
+            discard.accept(item);
+            slot.complete(null, e);
+            drain();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable, "throwable");
+        upstreamError = throwable;
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    private void addDemand(long n) {
+        while (true) {
+            long current = requested.get();
+            long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            if (requested.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private void cancel() {
+        cancelled = true;
+        Flow.Subscription subscription = upstream.get();
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        drain();
+    }
+
+    /**
+     * Emits the results which are done and have been requested, terminates the stream and requests more items from
+     * upstream. If another thread is in this method, it only records that it has to loop once more.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            Flow.Subscriber<? super R> s = subscriber.get();
+            if (s != null && subscribed && !cancelled) {
+                emit(s);
+            }
+            if (cancelled) {
+                // Running functions finish, but their results are dropped
+                slots.clear();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit(Flow.Subscriber<? super R> s) {
+        Throwable failure = error.get();
+        if (failure != null) {
+            fail(s, failure);
+            return;
+        }
+
+        Slot<R> slot;
+        while (requested.get() > 0 && (slot = slots.peek()) != null && slot.done) {
+            slots.poll();
+            if (slot.error != null) {
+                fail(s, slot.error);
+                return;
+            }
+            if (requested.get() != Long.MAX_VALUE) {
+                requested.decrementAndGet();
+            }
+            inFlight.decrementAndGet();
+            s.onNext(slot.result);
+            if (cancelled) {
+                return;
+            }
+        }
+
+        if (upstreamDone) {
+            if (slots.isEmpty()) {
+                cancelled = true;
+                Throwable t = upstreamError;
+                if (t != null) {
+                    s.onError(t);
+                } else {
+                    s.onComplete();
+                }
+            }
+            return;
+        }
+
+        Flow.Subscription subscription = upstream.get();
+        if (subscription != null) {
+            long free = Math.min(maxConcurrency - inFlight.get(), requested.get() - inFlight.get());
+            if (free > 0) {
+                inFlight.addAndGet((int) free);
+                subscription.request(free);
+            }
+        }
+    }
+
+    private void fail(Flow.Subscriber<? super R> s, Throwable failure) {
+        cancelled = true;
+        Flow.Subscription subscription = upstream.get();
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        s.onError(failure);
+    }
+
+    /**
+     * Result of an item.
+     *
+     * @param <R> Type of the result.
+     */
+    private static final class Slot<R> {
+        private R result;
+        private Throwable error;
+        private volatile boolean done;
+
+        void complete(R result, Throwable error) {
+            this.result = result;
+            this.error = error;
+            // The volatile write publishes the result
+            this.done = true;
+        }
+    }
+}
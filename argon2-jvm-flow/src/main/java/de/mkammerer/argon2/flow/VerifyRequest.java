@@ -0,0 +1,33 @@
+package de.mkammerer.argon2.flow;
+
+/**
+ * A password which should be verified against a hash, the input of {@link Argon2Flow#verifying}.
+ * <p>
+ * The password array is wiped after the verification.
+ */
+public final class VerifyRequest {
+    private final String hash;
+    private final char[] password;
+
+    /**
+     * Constructor.
+     *
+     * @param hash     Hash.
+     * @param password Password, encoded as UTF-8 for the verification.
+     */
+    public VerifyRequest(String hash, char[] password) {
+        if (hash == null) throw new IllegalArgumentException("hash must not be null");
+        if (password == null) throw new IllegalArgumentException("password must not be null");
+
+        this.hash = hash;
+        this.password = password;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public char[] getPassword() {
+        return password;
+    }
+}
@@ -0,0 +1,168 @@
+package de.mkammerer.argon2.flow;
+
+import de.mkammerer.argon2.Argon2Advanced;
+import de.mkammerer.argon2.Argon2Factory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Argon2FlowTest {
+    private static final int COUNT = 12;
+
+    private final Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+
+    @Test
+    public void testHashing() throws Exception {
+        CountingPublisher publisher = new CountingPublisher();
+        Flow.Processor<char[], String> processor = Argon2Flow.hashing(argon2, 1, 1024, 1, Argon2Flow.defaultExecutor(), 3);
+        publisher.subscribe(processor);
+
+        CollectingSubscriber<String> subscriber = new CollectingSubscriber<>(publisher, Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+        List<String> hashes = subscriber.result.get(1, TimeUnit.MINUTES);
+
+        // The hashes are in the order of the passwords
+        assertThat(hashes).hasSize(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            assertThat(argon2.verify(hashes.get(i), ("password" + i).toCharArray())).isTrue();
+        }
+        assertThat(subscriber.maxInFlight.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        CountingPublisher publisher = new CountingPublisher();
+        Flow.Processor<char[], String> processor = Argon2Flow.hashing(argon2, 1, 1024, 1, Argon2Flow.defaultExecutor(), 8);
+        publisher.subscribe(processor);
+
+        CollectingSubscriber<String> subscriber = new CollectingSubscriber<>(publisher, 2);
+        processor.subscribe(subscriber);
+        subscriber.twoReceived.get(1, TimeUnit.MINUTES);
+
+        // Without more demand, no more passwords are requested
+        Thread.sleep(100);
+        assertThat(publisher.requested.get()).isEqualTo(2);
+        assertThat(subscriber.received).hasSize(2);
+    }
+
+    @Test
+    public void testVerifying() throws Exception {
+        String hash = argon2.hash(1, 1024, 1, "password".toCharArray());
+        char[] password = "password".toCharArray();
+
+        Flow.Processor<VerifyRequest, Boolean> processor = Argon2Flow.verifying(argon2);
+        SubmissionPublisher<VerifyRequest> publisher = new SubmissionPublisher<>();
+        publisher.subscribe(processor);
+        CollectingSubscriber<Boolean> subscriber = new CollectingSubscriber<>(null, Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+
+        publisher.submit(new VerifyRequest(hash, password));
+        publisher.submit(new VerifyRequest(hash, "not-the-password".toCharArray()));
+        publisher.close();
+
+        assertThat(subscriber.result.get(1, TimeUnit.MINUTES)).containsExactly(true, false);
+        // The password has been wiped
+        assertThat(password).containsOnly('\0');
+    }
+
+    @Test
+    public void testRejected() {
+        Flow.Processor<char[], String> processor = Argon2Flow.hashing(argon2, 1, 1024, 1, runnable -> {
+            throw new RejectedExecutionException("Full");
+        }, 2);
+        SubmissionPublisher<char[]> publisher = new SubmissionPublisher<>();
+        publisher.subscribe(processor);
+        CollectingSubscriber<String> subscriber = new CollectingSubscriber<>(null, Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+
+        publisher.submit("password".toCharArray());
+
+        assertThatThrownBy(() -> subscriber.result.get(1, TimeUnit.MINUTES))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    /**
+     * Publishes {@link #COUNT} passwords and counts the requested and the published passwords.
+     */
+    private static final class CountingPublisher implements Flow.Publisher<char[]> {
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger published = new AtomicInteger();
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super char[]> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private boolean completed;
+
+                @Override
+                public synchronized void request(long n) {
+                    requested.addAndGet(n);
+                    for (long i = 0; i < n && published.get() < COUNT; i++) {
+                        subscriber.onNext(("password" + published.getAndIncrement()).toCharArray());
+                    }
+                    if (published.get() == COUNT && !completed) {
+                        completed = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    // Nothing to do
+                }
+            });
+        }
+    }
+
+    private static final class CollectingSubscriber<T> implements Flow.Subscriber<T> {
+        private final CountingPublisher publisher;
+        private final long demand;
+        private final List<T> received = new CopyOnWriteArrayList<>();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final CompletableFuture<List<T>> result = new CompletableFuture<>();
+        private final CompletableFuture<Void> twoReceived = new CompletableFuture<>();
+
+        CollectingSubscriber(CountingPublisher publisher, long demand) {
+            this.publisher = publisher;
+            this.demand = demand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(demand);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (publisher != null) {
+                maxInFlight.accumulateAndGet(publisher.published.get() - received.size(), Math::max);
+            }
+            received.add(item);
+            if (received.size() == 2) {
+                twoReceived.complete(null);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(received);
+        }
+    }
+}
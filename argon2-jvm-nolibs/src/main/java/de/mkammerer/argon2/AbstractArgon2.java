@@ -0,0 +1,577 @@
+package de.mkammerer.argon2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Base class for all Argon2 implementations.
+ * <p>
+ * Contains everything which doesn't depend on how the hash is computed: the overloads, charset handling, salt
+ * generation and the rehash check. Subclasses implement the byte based primitives.
+ */
+abstract class AbstractArgon2 implements Argon2, Argon2Advanced {
+
+    /**
+     * Default charset.
+     */
+    private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * The pattern that a hash must match.
+     */
+    private static final Pattern HASH_PATTERN = Pattern.compile("^\\$argon2[id]{1,2}\\$v=\\d+\\$m=(\\d+),t=(\\d+),p=(\\d+)\\$.+$");
+
+    /**
+     * Secure RNG for salt.
+     */
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final int defaultSaltLength;
+    private final int defaultHashLength;
+
+    /**
+     * Constructor.
+     *
+     * @param defaultSaltLength Default salt length in bytes. Can be overridden by some methods.
+     * @param defaultHashLength Default hash length in bytes. Can be overridden by some methods.
+     */
+    AbstractArgon2(int defaultSaltLength, int defaultHashLength) {
+        this.defaultSaltLength = defaultSaltLength;
+        this.defaultHashLength = defaultHashLength;
+    }
+
+    @Override
+    public String hash(int iterations, int memory, int parallelism, char[] password) {
+        return hash(iterations, memory, parallelism, password, DEFAULT_CHARSET);
+    }
+
+    @Override
+    public String hash(int iterations, int memory, int parallelism, byte[] data) {
+        return hashBytes(iterations, memory, parallelism, data);
+    }
+
+    @Override
+    public boolean verify(String hash, byte[] data) {
+        return verifyBytes(hash, data);
+    }
+
+    @Override
+    public String hash(int iterations, int memory, int parallelism, char[] password, Charset charset) {
+        byte[] pwd = toByteArray(password, charset);
+        try {
+            return hashBytes(iterations, memory, parallelism, pwd);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public String hash(int iterations, int memory, int parallelism, String password, Charset charset) {
+        byte[] pwd = password.getBytes(charset);
+        try {
+            return hashBytes(iterations, memory, parallelism, pwd);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public String hash(int iterations, int memory, int parallelism, String password) {
+        return hash(iterations, memory, parallelism, password, DEFAULT_CHARSET);
+    }
+
+    @Override
+    public String hash(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt) {
+        byte[] pwd = toByteArray(password, charset);
+        try {
+            return hashBytes(iterations, memory, parallelism, pwd, salt);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public byte[] rawHash(int iterations, int memory, int parallelism, char[] password, byte[] salt) {
+        return rawHash(iterations, memory, parallelism, password, DEFAULT_CHARSET, salt);
+    }
+
+    @Override
+    public byte[] rawHash(int iterations, int memory, int parallelism, byte[] data, byte[] salt) {
+        return rawHashBytes(iterations, memory, parallelism, data, salt, defaultHashLength);
+    }
+
+    @Override
+    public byte[] rawHash(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt) {
+        byte[] pwd = toByteArray(password, charset);
+        try {
+            return rawHashBytes(iterations, memory, parallelism, pwd, salt, defaultHashLength);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public byte[] rawHash(int iterations, int memory, int parallelism, String password, Charset charset, byte[] salt) {
+        byte[] pwd = password.getBytes(charset);
+        try {
+            return rawHashBytes(iterations, memory, parallelism, pwd, salt, defaultHashLength);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public byte[] rawHash(int iterations, int memory, int parallelism, String password, byte[] salt) {
+        return rawHash(iterations, memory, parallelism, password, DEFAULT_CHARSET, salt);
+    }
+
+    @Override
+    public boolean verify(String hash, String password) {
+        return verify(hash, password, DEFAULT_CHARSET);
+    }
+
+    @Override
+    public boolean verify(String hash, String password, Charset charset) {
+        byte[] pwd = password.getBytes(charset);
+        try {
+            return verifyBytes(hash, pwd);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public boolean verify(String hash, char[] password, Charset charset) {
+        byte[] pwd = toByteArray(password, charset);
+        try {
+            return verifyBytes(hash, pwd);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public boolean verify(String hash, char[] password) {
+        return verify(hash, password, DEFAULT_CHARSET);
+    }
+
+    /**
+     * Wipes the data from the given array.
+     * <p>
+     * Use this method to clear confidential data after using it.
+     *
+     * @param array the array to wipe
+     */
+    @Override
+    public void wipeArray(byte[] array) {
+        Arrays.fill(array, (byte) 0);
+    }
+
+    @Override
+    public void wipeArray(char[] array) {
+        Arrays.fill(array, (char) 0);
+    }
+
+    @Override
+    public byte[] pbkdf(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, int keyLength) {
+        byte[] pwd = toByteArray(password, charset);
+        try {
+            return pbkdf(iterations, memory, parallelism, pwd, salt, keyLength);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public byte[] pbkdf(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int keyLength) {
+        return rawHashBytes(iterations, memory, parallelism, password, salt, keyLength);
+    }
+
+    @Override
+    public String hash(int iterations, int memory, int parallelism, FileChannel password) throws IOException {
+        byte[] salt = generateSalt();
+        byte[] hash = rawHashBuffer(iterations, memory, parallelism, map(password), salt, defaultHashLength);
+        return new EncodedHash(getType(), Argon2Version.DEFAULT_VERSION.getVersion(), memory, iterations, parallelism, salt, hash).encode();
+    }
+
+    @Override
+    public byte[] pbkdf(int iterations, int memory, int parallelism, FileChannel password, byte[] salt, int keyLength) throws IOException {
+        return rawHashBuffer(iterations, memory, parallelism, map(password), salt, keyLength);
+    }
+
+    @Override
+    public byte[][] deriveKeys(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, String[] labels, int keyLength) {
+        byte[] pwd = toByteArray(password, charset);
+        try {
+            return deriveKeys(iterations, memory, parallelism, pwd, salt, labels, keyLength);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public byte[][] deriveKeys(int iterations, int memory, int parallelism, byte[] password, byte[] salt, String[] labels, int keyLength) {
+        if (labels.length == 0) throw new IllegalArgumentException("labels must not be empty");
+        if (keyLength < 1 || keyLength > 255 * Hkdf.HASH_LENGTH) throw new IllegalArgumentException("keyLength must be between 1 and " + 255 * Hkdf.HASH_LENGTH);
+        if (new HashSet<String>(Arrays.asList(labels)).size() != labels.length) throw new IllegalArgumentException("labels must be distinct");
+
+        byte[] masterKey = rawHashBytes(iterations, memory, parallelism, password, salt, Hkdf.HASH_LENGTH);
+        try {
+            byte[][] keys = new byte[labels.length][];
+            for (int i = 0; i < labels.length; i++) {
+                keys[i] = Hkdf.expand(masterKey, labels[i].getBytes(DEFAULT_CHARSET), keyLength);
+            }
+            return keys;
+        } finally {
+            wipeArray(masterKey);
+        }
+    }
+
+    @Override
+    public boolean needsRehash(String hash, int iterations, int memory, int parallelism) {
+        Matcher matcher = HASH_PATTERN.matcher(hash);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid hash '" + hash + "'");
+        }
+
+        int actualMemory = Integer.parseInt(matcher.group(1));
+        int actualIterations = Integer.parseInt(matcher.group(2));
+        int actualParallelism = Integer.parseInt(matcher.group(3));
+        return actualMemory < memory || actualIterations < iterations || actualParallelism < parallelism;
+    }
+
+    @Override
+    public RehashResult verifyAndRehash(String hash, char[] password, int iterations, int memory, int parallelism) {
+        return verifyAndRehash(hash, password, iterations, memory, parallelism, null);
+    }
+
+    @Override
+    public RehashResult verifyAndRehash(String hash, char[] password, final int iterations, final int memory, final int parallelism, Executor executor) {
+        EncodedHash encoded;
+        try {
+            encoded = EncodedHash.parse(hash);
+        } catch (IllegalArgumentException e) {
+            // Like verify(), an invalid hash doesn't match any password
+            return new RehashResult(false, null);
+        }
+        Argon2Version version = toVersion(encoded.getVersion());
+        if (version == null || encoded.getHash().length == 0) {
+            return new RehashResult(false, null);
+        }
+
+        boolean rehash = encoded.getType() != getType() || encoded.getVersion() < Argon2Version.DEFAULT_VERSION.getVersion()
+                || encoded.getMemory() < memory || encoded.getIterations() < iterations || encoded.getParallelism() < parallelism;
+
+        final byte[] pwd = toByteArray(password, DEFAULT_CHARSET);
+        final AtomicBoolean abandoned = new AtomicBoolean();
+        FutureTask<String> newHash = null;
+        try {
+            if (rehash) {
+                newHash = new FutureTask<String>(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return abandoned.get() ? null : hashBytes(iterations, memory, parallelism, pwd, generateSalt());
+                    }
+                });
+                if (executor != null) {
+                    try {
+                        executor.execute(newHash);
+                    } catch (RejectedExecutionException e) {
+                        // The task is run by the calling thread below
+                    }
+                }
+            }
+
+            Argon2Advanced verifier = encoded.getType() == getType() ? this : withType(encoded.getType());
+            boolean valid = verifier.verifyAdvanced(encoded.getIterations(), encoded.getMemory(), encoded.getParallelism(), pwd,
+                    encoded.getSalt(), null, null, encoded.getHash().length, version, encoded.getHash());
+            if (!valid) {
+                abandoned.set(true);
+            }
+
+            String result = null;
+            if (newHash != null) {
+                // Does nothing if the executor has already started the task. Either way, it has to finish before the
+                // password is wiped
+                newHash.run();
+                result = Futures.awaitUninterruptibly(newHash);
+            }
+            return new RehashResult(valid, valid ? result : null);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public byte[] rawHashAdvanced(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, byte[] secret, byte[] associatedData) {
+        byte[] pwd = toByteArray(password, charset);
+        return rawHashAdvanced(iterations, memory, parallelism, pwd, salt, secret, associatedData, defaultHashLength, Argon2Version.DEFAULT_VERSION);
+    }
+
+    @Override
+    public boolean verifyAdvanced(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, byte[] secret, byte[] associatedData, byte[] rawHash) {
+        byte[] pwd = toByteArray(password, charset);
+        return verifyAdvanced(iterations, memory, parallelism, pwd, salt, secret, associatedData, defaultHashLength, Argon2Version.DEFAULT_VERSION, rawHash);
+    }
+
+    @Override
+    public String hash(int iterations, int memory, int parallelism, SecretBuffer password) {
+        byte[] salt = generateSalt();
+        byte[] hash = rawHashAdvanced(iterations, memory, parallelism, password, salt, null, null, defaultHashLength, Argon2Version.DEFAULT_VERSION);
+        return new EncodedHash(getType(), Argon2Version.DEFAULT_VERSION.getVersion(), memory, iterations, parallelism, salt, hash).encode();
+    }
+
+    @Override
+    public boolean verify(String hash, SecretBuffer password) {
+        byte[] pwd = toBytes(password.buffer());
+        password.clear();
+        try {
+            return verify(hash, pwd);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public byte[] rawHashAdvanced(int iterations, int memory, int parallelism, SecretBuffer password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version) {
+        byte[] pwd = toBytes(password.buffer());
+        password.clear();
+        try {
+            return rawHashAdvanced(iterations, memory, parallelism, pwd, salt, secret, associatedData, hashLength, version);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public void rawHashAdvanced(int iterations, int memory, int parallelism, ByteBuffer password, ByteBuffer salt, ByteBuffer secret, ByteBuffer associatedData, ByteBuffer hash, Argon2Version version) {
+        if (hash.isReadOnly()) throw new IllegalArgumentException("hash must not be read only");
+
+        byte[] pwd = toBytes(password);
+        byte[] sec = toBytes(secret);
+        try {
+            byte[] raw = rawHashAdvanced(iterations, memory, parallelism, pwd, toBytes(salt), sec, toBytes(associatedData), hash.remaining(), version);
+            hash.duplicate().put(raw);
+            wipeArray(raw);
+        } finally {
+            wipeArray(pwd);
+            if (sec != null) {
+                wipeArray(sec);
+            }
+        }
+    }
+
+    @Override
+    public boolean verifyAdvanced(int iterations, int memory, int parallelism, ByteBuffer password, ByteBuffer salt, ByteBuffer secret, ByteBuffer associatedData, ByteBuffer rawHash, Argon2Version version) {
+        byte[] pwd = toBytes(password);
+        byte[] sec = toBytes(secret);
+        try {
+            return verifyAdvanced(iterations, memory, parallelism, pwd, toBytes(salt), sec, toBytes(associatedData), rawHash.remaining(), version, toBytes(rawHash));
+        } finally {
+            wipeArray(pwd);
+            if (sec != null) {
+                wipeArray(sec);
+            }
+        }
+    }
+
+    @Override
+    public boolean verify(String hash, ByteBuffer password) {
+        byte[] pwd = toBytes(password);
+        try {
+            return verify(hash, pwd);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public String[] hashAll(int iterations, int memory, int parallelism, List<char[]> passwords) {
+        return ParallelBatch.hashAll(this, iterations, memory, parallelism, passwords);
+    }
+
+    @Override
+    public boolean[] verifyAll(List<String> hashes, List<char[]> passwords) {
+        return ParallelBatch.verifyAll(this, hashes, passwords);
+    }
+
+    @Override
+    public byte[] generateSalt() {
+        return generateSalt(defaultSaltLength);
+    }
+
+    @Override
+    public byte[] generateSalt(int lengthInBytes) {
+        byte[] salt = new byte[lengthInBytes];
+        secureRandom.nextBytes(salt);
+
+        return salt;
+    }
+
+    /**
+     * Returns the hash length in bytes.
+     *
+     * @return Hash length in bytes.
+     */
+    protected int getDefaultHashLength() {
+        return defaultHashLength;
+    }
+
+    /**
+     * Returns an instance with the same configuration, but the given type.
+     *
+     * @param type Argon2 type.
+     * @return Instance with the given type.
+     */
+    abstract Argon2Advanced withType(Argon2Factory.Argon2Types type);
+
+    /**
+     * Returns the salt length in bytes.
+     *
+     * @return Salt length in bytes.
+     */
+    int getDefaultSaltLength() {
+        return defaultSaltLength;
+    }
+
+    /**
+     * Returns the Argon2 type.
+     *
+     * @return Argon2 type.
+     */
+    protected abstract Argon2Factory.Argon2Types getType();
+
+    /**
+     * Hashes the given password with the given salt and returns the encoded hash.
+     *
+     * @param iterations  Iterations.
+     * @param memory      Memory.
+     * @param parallelism Parallelism.
+     * @param pwd         Password.
+     * @param salt        Salt.
+     * @return Encoded hash.
+     */
+    protected abstract String hashBytes(int iterations, int memory, int parallelism, byte[] pwd, byte[] salt);
+
+    /**
+     * Hashes the given password with the given salt and returns the raw hash.
+     *
+     * @param iterations  Iterations.
+     * @param memory      Memory.
+     * @param parallelism Parallelism.
+     * @param pwd         Password.
+     * @param salt        Salt.
+     * @param hashLength  Hash length in bytes.
+     * @return Raw hash.
+     */
+    protected abstract byte[] rawHashBytes(int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, int hashLength);
+
+    /**
+     * Verifies the given password against the given encoded hash.
+     *
+     * @param hash Encoded hash.
+     * @param pwd  Password.
+     * @return True if the password matches the hash, false otherwise.
+     */
+    protected abstract boolean verifyBytes(String hash, byte[] pwd);
+
+    private String hashBytes(int iterations, int memory, int parallelism, byte[] pwd) {
+        byte[] salt = generateSalt();
+        return hashBytes(iterations, memory, parallelism, pwd, salt);
+    }
+
+    /**
+     * Computes the raw hash of a password in a buffer, from its position to its limit. The position isn't changed.
+     * <p>
+     * This implementation copies the password onto the heap and calls
+     * {@link #rawHashBytes(int, int, int, byte[], byte[], int)}. Implementations which can read direct buffers in
+     * place should override it.
+     *
+     * @param iterations  Iterations.
+     * @param memory      Memory.
+     * @param parallelism Parallelism.
+     * @param pwd         Password.
+     * @param salt        Salt.
+     * @param hashLength  Hash length.
+     * @return Raw hash.
+     */
+    byte[] rawHashBuffer(int iterations, int memory, int parallelism, ByteBuffer pwd, byte[] salt, int hashLength) {
+        byte[] bytes = toBytes(pwd);
+        try {
+            return rawHashBytes(iterations, memory, parallelism, bytes, salt, hashLength);
+        } finally {
+            wipeArray(bytes);
+        }
+    }
+
+    /**
+     * Copies the remaining bytes of a buffer, without changing its position.
+     *
+     * @param buffer Buffer (nullable).
+     * @return Copy, or null if the buffer is null.
+     */
+    static byte[] toBytes(ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("password must not be larger than " + Integer.MAX_VALUE + " bytes");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    /**
+     * Returns the Argon2 version with the given number.
+     *
+     * @param version Version number from an encoded hash.
+     * @return Argon2 version, or null if the version is unknown.
+     */
+    static Argon2Version toVersion(int version) {
+        if (version == Argon2Version.V10.getVersion()) {
+            return Argon2Version.V10;
+        }
+        if (version == Argon2Version.V13.getVersion()) {
+            return Argon2Version.V13;
+        }
+        return null;
+    }
+
+    /**
+     * Converts the given char array to a UTF-8 encoded byte array.
+     *
+     * @param chars   the char array to convert
+     * @param charset Charset of the password
+     * @return UTF-8 encoded byte array
+     */
+    static byte[] toByteArray(char[] chars, Charset charset) {
+        assert chars != null;
+
+        CharBuffer charBuffer = CharBuffer.wrap(chars);
+        ByteBuffer byteBuffer = charset.encode(charBuffer);
+        byte[] bytes = Arrays.copyOfRange(byteBuffer.array(),
+                byteBuffer.position(), byteBuffer.limit());
+        Arrays.fill(byteBuffer.array(), (byte) 0); // clear sensitive data
+        return bytes;
+    }
+}
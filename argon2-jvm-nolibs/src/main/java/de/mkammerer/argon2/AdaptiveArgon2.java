@@ -0,0 +1,306 @@
+package de.mkammerer.argon2;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes new passwords with cost parameters which go down under sustained overload, but never below a minimum.
+ * <p>
+ * During registration spikes, hashing with the target parameters either makes requests time out or forces weaker
+ * parameters for good. This class measures the load and trades cost for throughput temporarily: between the target and
+ * the minimum, iterations and memory are interpolated in {@value #STEPS} steps. The load is the higher one of two
+ * ratios:
+ * <ul>
+ * <li>the moving average of the duration of {@code hash} calls to the latency target</li>
+ * <li>the number of {@code hash} and {@code verify} calls in this instance, running or waiting, to
+ * {@code maxConcurrent}</li>
+ * </ul>
+ * The load is measured when a call starts, without the call itself. If it is above 1, the cost goes one step down; if
+ * it is below 0.5, one step up. The cost changes at most once per latency target, and after a quiet period it goes
+ * back to the target right away (10 latency targets, but at least one second).
+ * <p>
+ * Hashes with a reduced cost are below the target, so {@link #needsRehash(String)} returns true for them and
+ * {@link #verifyAndRehash(String, char[])} replaces them at the next login, once the load allows the target cost again.
+ * This class is thread safe.
+ */
+public final class AdaptiveArgon2 {
+    /**
+     * Number of steps between the target and the minimum cost.
+     */
+    public static final int STEPS = 4;
+
+    /**
+     * Load below which the cost goes up again. The gap to 1 keeps the cost from flapping.
+     */
+    private static final double RELAXED_LOAD = 0.5;
+
+    /**
+     * Weight of the newest sample in the moving average.
+     */
+    private static final double SAMPLE_WEIGHT = 0.2;
+
+    /**
+     * Number of latency targets without a finished hash after which the moving average is discarded.
+     */
+    private static final int QUIET_INTERVALS = 10;
+
+    /**
+     * Minimum time without a finished hash after which the moving average is discarded.
+     */
+    private static final long MIN_QUIET_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Argon2Advanced argon2;
+    private final int targetIterations;
+    private final int targetMemory;
+    private final int minIterations;
+    private final int minMemory;
+    private final int parallelism;
+    private final long latencyTargetNanos;
+    private final long quietNanos;
+    private final int maxConcurrent;
+
+    /**
+     * Calls which are running or waiting.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Cost step, 0 is the target and {@link #STEPS} the minimum.
+     */
+    private volatile int step;
+
+    /**
+     * Moving average of the duration of a hash in nanoseconds, 0 if unknown. Guarded by {@code this}.
+     */
+    private double averageNanos;
+
+    /**
+     * Time of the last finished hash, from {@link System#nanoTime()}. Guarded by {@code this}.
+     */
+    private long lastSample = System.nanoTime();
+
+    /**
+     * Time of the last change of the cost step, from {@link System#nanoTime()}. Guarded by {@code this}.
+     */
+    private long lastChange = System.nanoTime();
+
+    /**
+     * Constructor. More calls than available processors at the same time count as overload.
+     *
+     * @param argon2           Instance which computes the hashes.
+     * @param targetIterations Number of iterations without overload.
+     * @param targetMemory     Memory in kibibytes without overload.
+     * @param minIterations    Minimum number of iterations.
+     * @param minMemory        Minimum memory in kibibytes.
+     * @param parallelism      Number of threads and compute lanes.
+     * @param latencyTarget    Duration of a hash above which the cost goes down.
+     * @param unit             Unit of the latency target.
+     */
+    public AdaptiveArgon2(Argon2Advanced argon2, int targetIterations, int targetMemory, int minIterations, int minMemory,
+                          int parallelism, long latencyTarget, TimeUnit unit) {
+        this(argon2, targetIterations, targetMemory, minIterations, minMemory, parallelism, latencyTarget, unit,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param argon2           Instance which computes the hashes.
+     * @param targetIterations Number of iterations without overload.
+     * @param targetMemory     Memory in kibibytes without overload.
+     * @param minIterations    Minimum number of iterations.
+     * @param minMemory        Minimum memory in kibibytes.
+     * @param parallelism      Number of threads and compute lanes.
+     * @param latencyTarget    Duration of a hash above which the cost goes down.
+     * @param unit             Unit of the latency target.
+     * @param maxConcurrent    Number of calls at the same time above which the cost goes down, e.g. the number of CPUs.
+     */
+    public AdaptiveArgon2(Argon2Advanced argon2, int targetIterations, int targetMemory, int minIterations, int minMemory,
+                          int parallelism, long latencyTarget, TimeUnit unit, int maxConcurrent) {
+        if (argon2 == null) throw new IllegalArgumentException("argon2 must not be null");
+        if (minIterations < 1) throw new IllegalArgumentException("minIterations must be >= 1");
+        if (minMemory < 1) throw new IllegalArgumentException("minMemory must be >= 1");
+        if (targetIterations < minIterations) throw new IllegalArgumentException("targetIterations must be >= minIterations");
+        if (targetMemory < minMemory) throw new IllegalArgumentException("targetMemory must be >= minMemory");
+        if (latencyTarget <= 0) throw new IllegalArgumentException("latencyTarget must be > 0");
+        if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be >= 1");
+
+        this.argon2 = argon2;
+        this.targetIterations = targetIterations;
+        this.targetMemory = targetMemory;
+        this.minIterations = minIterations;
+        this.minMemory = minMemory;
+        this.parallelism = parallelism;
+        this.latencyTargetNanos = unit.toNanos(latencyTarget);
+        this.quietNanos = Math.max(MIN_QUIET_NANOS, QUIET_INTERVALS * latencyTargetNanos);
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Hashes a password with the current cost.
+     * <p>
+     * Uses UTF-8 encoding.
+     *
+     * @param password Password to hash
+     * @return Hashed password.
+     */
+    public String hash(char[] password) {
+        return hash(password, UTF_8);
+    }
+
+    /**
+     * Hashes a password with the current cost.
+     *
+     * @param password Password to hash
+     * @param charset  Charset of the password
+     * @return Hashed password.
+     */
+    public String hash(char[] password, Charset charset) {
+        byte[] pwd = AbstractArgon2.toByteArray(password, charset);
+        try {
+            return hash(pwd);
+        } finally {
+            argon2.wipeArray(pwd);
+        }
+    }
+
+    /**
+     * Hashes the given data with the current cost.
+     *
+     * @param data Data to hash
+     * @return Hashed data.
+     */
+    public String hash(byte[] data) {
+        long start = System.nanoTime();
+        int current = currentStep(start);
+        inFlight.incrementAndGet();
+        try {
+            return argon2.hash(iterations(current), memory(current), parallelism, data);
+        } finally {
+            inFlight.decrementAndGet();
+            finish(start);
+        }
+    }
+
+    /**
+     * Verifies a password against a hash.
+     *
+     * @param hash     Hash
+     * @param password Password, encoded as UTF-8.
+     * @return True if the password matches the hash, false otherwise.
+     */
+    public boolean verify(String hash, char[] password) {
+        inFlight.incrementAndGet();
+        try {
+            return argon2.verify(hash, password);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Verifies a password against a hash and, if the hash is below the target cost, hashes it again with the target
+     * cost. Under overload, the hash is only verified, so the rehash waits for a later login.
+     *
+     * @param hash     Stored hash.
+     * @param password Password, encoded as UTF-8.
+     * @return Whether the password matches, and the new hash if one was needed and the load allowed it.
+     */
+    public RehashResult verifyAndRehash(String hash, char[] password) {
+        int current = currentStep(System.nanoTime());
+        inFlight.incrementAndGet();
+        try {
+            if (current != 0) {
+                return new RehashResult(argon2.verify(hash, password), null);
+            }
+            return argon2.verifyAndRehash(hash, password, targetIterations, targetMemory, parallelism);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Checks if the given hash is below the target cost, e.g. because it has been created under overload.
+     *
+     * @param hash Hash.
+     * @return {@code true} if the hash should be rehashed with the target cost, or {@code false} otherwise.
+     * @throws IllegalArgumentException if the hash is invalid
+     */
+    public boolean needsRehash(String hash) {
+        return argon2.needsRehash(hash, targetIterations, targetMemory, parallelism);
+    }
+
+    /**
+     * Returns the number of iterations which new hashes get right now.
+     *
+     * @return Number of iterations.
+     */
+    public int getCurrentIterations() {
+        return iterations(step);
+    }
+
+    /**
+     * Returns the memory which new hashes get right now.
+     *
+     * @return Memory in kibibytes.
+     */
+    public int getCurrentMemory() {
+        return memory(step);
+    }
+
+    /**
+     * Returns whether new hashes get less than the target cost right now.
+     *
+     * @return True if the cost is reduced because of overload, false otherwise.
+     */
+    public boolean isDegraded() {
+        return step != 0;
+    }
+
+    private int iterations(int step) {
+        return targetIterations - (targetIterations - minIterations) * step / STEPS;
+    }
+
+    private int memory(int step) {
+        return (int) (targetMemory - ((long) targetMemory - minMemory) * step / STEPS);
+    }
+
+    private synchronized int currentStep(long now) {
+        // After a quiet period, the old durations say nothing about the load anymore
+        if (averageNanos != 0 && now - lastSample > quietNanos) {
+            averageNanos = 0;
+        }
+        adjust(now);
+        return step;
+    }
+
+    private synchronized void finish(long start) {
+        long now = System.nanoTime();
+        long nanos = now - start;
+        averageNanos = averageNanos == 0 ? nanos : averageNanos + SAMPLE_WEIGHT * (nanos - averageNanos);
+        lastSample = now;
+        adjust(now);
+    }
+
+    /**
+     * Moves the cost step according to the load. Guarded by {@code this}.
+     */
+    private void adjust(long now) {
+        if (now - lastChange < latencyTargetNanos) {
+            return;
+        }
+
+        double load = Math.max(averageNanos / latencyTargetNanos, (double) inFlight.get() / maxConcurrent);
+        if (load > 1 && step < STEPS) {
+            step++;
+            lastChange = now;
+        } else if (load < RELAXED_LOAD && step > 0) {
+            // Without recent hashes only the number of calls is known. If that is low, the spike is over
+            step = averageNanos == 0 ? 0 : step - 1;
+            lastChange = now;
+        }
+    }
+}
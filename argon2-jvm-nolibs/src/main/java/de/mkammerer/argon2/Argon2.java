@@ -1,6 +1,7 @@
 package de.mkammerer.argon2;
 
 import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
 
 /**
  * Argon2 password hashing function.
@@ -159,4 +160,37 @@ public interface Argon2 {
      * @throws IllegalArgumentException if the hash is invalid
      */
     boolean needsRehash(String hash, int iterations, int memory, int parallelism);
+
+    /**
+     * Verifies a password against a hash and, if it matches and the hash doesn't meet the given target, hashes the
+     * password again.
+     * <p>
+     * The hash needs a rehash if one of its parameters is below the target, if its type differs from the type of this
+     * instance or if it uses an older Argon2 version. The hash is parsed only once. The new hash has the type of this
+     * instance and a new salt.
+     *
+     * @param hash        Stored hash, may have any Argon2 type.
+     * @param password    Password, encoded as UTF-8.
+     * @param iterations  Target number of iterations
+     * @param memory      Target memory usage in kibibytes
+     * @param parallelism Target parallelism
+     * @return Whether the password matches, and the new hash if one was needed.
+     */
+    RehashResult verifyAndRehash(String hash, char[] password, int iterations, int memory, int parallelism);
+
+    /**
+     * Like {@link #verifyAndRehash(String, char[], int, int, int)}, but if the hash needs a rehash, the new hash is
+     * computed on the given executor while the password is verified. This halves the latency of an upgrade, at the cost
+     * of a wasted hash if the password is wrong. The new hash is only returned if the password matches.
+     *
+     * @param hash        Stored hash, may have any Argon2 type.
+     * @param password    Password, encoded as UTF-8.
+     * @param iterations  Target number of iterations
+     * @param memory      Target memory usage in kibibytes
+     * @param parallelism Target parallelism
+     * @param executor    Executor which computes the new hash. If it rejects the task, the calling thread computes
+     *                    the new hash after the verification.
+     * @return Whether the password matches, and the new hash if one was needed.
+     */
+    RehashResult verifyAndRehash(String hash, char[] password, int iterations, int memory, int parallelism, Executor executor);
 }
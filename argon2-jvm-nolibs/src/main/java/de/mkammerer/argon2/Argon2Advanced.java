@@ -1,6 +1,10 @@
 package de.mkammerer.argon2;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.util.List;
 
 /**
  * Advanced Argon2 hash functions.
@@ -105,6 +109,78 @@ public interface Argon2Advanced extends Argon2 {
      */
     byte[] pbkdf(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int keyLength);
 
+    /**
+     * Hashes the content of a file, e.g. a key file.
+     * <p>
+     * The file is mapped into memory and the native library reads it in place, so it's neither copied onto the Java
+     * heap nor into native memory. The mapping is released when it's garbage collected. The pure Java implementation
+     * copies the content onto the heap.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Channel of the file to hash, from the start to the current size. Must be readable.
+     * @return Hashed password.
+     * @throws IOException If the file can't be mapped.
+     */
+    String hash(int iterations, int memory, int parallelism, FileChannel password) throws IOException;
+
+    /**
+     * Uses the content of a file, e.g. a key file, to generate key material (password based key derivation).
+     * <p>
+     * The file is mapped into memory and the native library reads it in place, so it's neither copied onto the Java
+     * heap nor into native memory. The mapping is released when it's garbage collected. The pure Java implementation
+     * copies the content onto the heap.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Channel of the file to generate key material from, from the start to the current size. Must
+     *                    be readable.
+     * @param salt        Salt to use. This will override the default salt length
+     * @param keyLength   Length of the returned key material in bytes.
+     * @return Key material.
+     * @throws IOException If the file can't be mapped.
+     */
+    byte[] pbkdf(int iterations, int memory, int parallelism, FileChannel password, byte[] salt, int keyLength) throws IOException;
+
+    /**
+     * Derives several independent keys from a password with one Argon2 run, e.g. an encryption key and a MAC key.
+     * <p>
+     * Argon2 computes a 32 byte master key, which is expanded with HKDF-SHA256 (RFC 5869) once per label. The label,
+     * encoded as UTF-8, is the HKDF info. Deriving another key costs one HMAC, so a key for a new purpose can be added
+     * without hashing the password again. The master key is wiped.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to generate key material from
+     * @param charset     Charset of the password
+     * @param salt        Salt to use. This will override the default salt length
+     * @param labels      Distinct labels, one per key.
+     * @param keyLength   Length of every key in bytes, at most 8160.
+     * @return Keys, in the same order as the labels.
+     */
+    byte[][] deriveKeys(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, String[] labels, int keyLength);
+
+    /**
+     * Derives several independent keys from a password with one Argon2 run, e.g. an encryption key and a MAC key.
+     * <p>
+     * Argon2 computes a 32 byte master key, which is expanded with HKDF-SHA256 (RFC 5869) once per label. The label,
+     * encoded as UTF-8, is the HKDF info. Deriving another key costs one HMAC, so a key for a new purpose can be added
+     * without hashing the password again. The master key is wiped.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to generate key material from
+     * @param salt        Salt to use. This will override the default salt length
+     * @param labels      Distinct labels, one per key.
+     * @param keyLength   Length of every key in bytes, at most 8160.
+     * @return Keys, in the same order as the labels.
+     */
+    byte[][] deriveKeys(int iterations, int memory, int parallelism, byte[] password, byte[] salt, String[] labels, int keyLength);
+
 
     /**
      * Hashes a password, using the given salt.
@@ -199,6 +275,118 @@ public interface Argon2Advanced extends Argon2 {
      */
     boolean verifyAdvanced(int iterations, int memory, int parallelism, byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version, byte[] rawHash);
 
+    /**
+     * Hashes a password in a {@link SecretBuffer}. libargon2 reads the password from the native memory of the buffer
+     * and wipes it after hashing, the buffer is empty afterwards.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to hash
+     * @return Hashed password.
+     */
+    String hash(int iterations, int memory, int parallelism, SecretBuffer password);
+
+    /**
+     * Verifies a password in a {@link SecretBuffer} against a hash. libargon2 reads the password from the native memory
+     * of the buffer and wipes it after hashing, the buffer is empty afterwards.
+     *
+     * @param hash     Hash.
+     * @param password Password.
+     * @return True if the password matches the hash, false otherwise.
+     */
+    boolean verify(String hash, SecretBuffer password);
+
+    /**
+     * Advanced version of hash for a password in a {@link SecretBuffer}. libargon2 reads the password from the native
+     * memory of the buffer and wipes it after hashing, the buffer is empty afterwards.
+     *
+     * @param iterations     Number of iterations
+     * @param memory         Sets memory usage to x kibibytes
+     * @param parallelism    Number of threads and compute lanes
+     * @param password       Password to hash
+     * @param salt           Salt
+     * @param secret         Secret (sometimes referred as Pepper), nullable
+     * @param associatedData Associated Data, nullable
+     * @param hashLength     Length of the returned hash in bytes.
+     * @param version        Argon2 version
+     * @return Hashed password in raw bytes.
+     */
+    byte[] rawHashAdvanced(int iterations, int memory, int parallelism, SecretBuffer password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version);
+
+    /**
+     * Advanced version of hash which reads the inputs from buffers and writes the raw hash into a buffer.
+     * <p>
+     * Every buffer is used from its position to its limit, the positions aren't changed. If all buffers are direct,
+     * libargon2 gets their addresses and no copies are made. Otherwise the contents are copied.
+     *
+     * @param iterations     Number of iterations
+     * @param memory         Sets memory usage to x kibibytes
+     * @param parallelism    Number of threads and compute lanes
+     * @param password       Password to hash
+     * @param salt           Salt
+     * @param secret         Secret (sometimes referred as Pepper), nullable
+     * @param associatedData Associated Data, nullable
+     * @param hash           Buffer for the raw hash. The hash length is the number of remaining bytes.
+     * @param version        Argon2 version
+     */
+    void rawHashAdvanced(int iterations, int memory, int parallelism, ByteBuffer password, ByteBuffer salt, ByteBuffer secret, ByteBuffer associatedData, ByteBuffer hash, Argon2Version version);
+
+    /**
+     * Verifies a password in a buffer against a hash.
+     * <p>
+     * Every buffer is used from its position to its limit, the positions aren't changed. If all buffers are direct,
+     * libargon2 gets their addresses and no copies are made. Otherwise the contents are copied.
+     *
+     * @param iterations     Number of iterations
+     * @param memory         Sets memory usage to x kibibytes
+     * @param parallelism    Number of threads and compute lanes
+     * @param password       Password to hash
+     * @param salt           Salt
+     * @param secret         Secret (sometimes referred as Pepper), nullable
+     * @param associatedData Associated Data, nullable
+     * @param rawHash        Raw Hash bytes.
+     * @param version        Argon2 version
+     * @return True if the password matches the hash, false otherwise.
+     */
+    boolean verifyAdvanced(int iterations, int memory, int parallelism, ByteBuffer password, ByteBuffer salt, ByteBuffer secret, ByteBuffer associatedData, ByteBuffer rawHash, Argon2Version version);
+
+    /**
+     * Verifies a password in a buffer against a hash. The buffer is used from its position to its limit, the position
+     * isn't changed. If the buffer is direct, libargon2 reads the password from it and no copy is made.
+     *
+     * @param hash     Hash.
+     * @param password Password.
+     * @return True if the password matches the hash, false otherwise.
+     */
+    boolean verify(String hash, ByteBuffer password);
+
+    /**
+     * Hashes several passwords with the same parameters on all available processors. Every password gets its own salt
+     * with the default length.
+     * <p>
+     * The passwords are split into chunks, which are hashed in parallel. As several hashes run at the same time, a
+     * parallelism of 1 uses the CPUs best.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param passwords   Passwords to hash, encoded as UTF-8.
+     * @return Hashes of the passwords, in the same order as the passwords.
+     */
+    String[] hashAll(int iterations, int memory, int parallelism, List<char[]> passwords);
+
+    /**
+     * Verifies several passwords against their hashes on all available processors.
+     * <p>
+     * The passwords are split into chunks, which are verified in parallel.
+     *
+     * @param hashes    Hashes.
+     * @param passwords Passwords, encoded as UTF-8. {@code passwords.get(i)} is verified against {@code hashes.get(i)}.
+     * @return For every password true if it matches its hash, false otherwise.
+     */
+    boolean[] verifyAll(List<String> hashes, List<char[]> passwords);
+
     /**
      * Generates salt with the default length.
      *
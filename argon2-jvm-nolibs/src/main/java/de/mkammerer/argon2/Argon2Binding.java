@@ -0,0 +1,92 @@
+package de.mkammerer.argon2;
+
+/**
+ * Calls the functions of the native Argon2 library which {@link BaseArgon2} needs without a context from JNA.
+ * <p>
+ * The only implementation is the binding through the foreign function and memory API, which needs Java 22 or later.
+ * It's in {@code META-INF/versions/22} of the multi-release JAR and loaded through reflection. Without it,
+ * {@link BaseArgon2} calls the library through JNA.
+ */
+interface Argon2Binding {
+    /**
+     * Calls {@code argon2_hash}.
+     *
+     * @param type        Argon2 type.
+     * @param version     Argon2 version.
+     * @param iterations  Iterations.
+     * @param memory      Memory.
+     * @param parallelism Parallelism.
+     * @param pwd         Password.
+     * @param salt        Salt.
+     * @param hash        Byte array to write the hash to (nullable).
+     * @param hashLength  Hash length.
+     * @param encoded     Byte array to write the encoded hash to (nullable).
+     * @return Return code.
+     */
+    int hash(Argon2Factory.Argon2Types type, Argon2Version version, int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, byte[] hash, int hashLength, byte[] encoded);
+
+    /**
+     * Calls {@code argon2_verify}.
+     *
+     * @param type    Argon2 type.
+     * @param encoded Encoded hash.
+     * @param pwd     Password.
+     * @return Return code.
+     */
+    int verify(Argon2Factory.Argon2Types type, String encoded, byte[] pwd);
+
+    /**
+     * Calls {@code argon2_ctx}.
+     *
+     * @param type           Argon2 type.
+     * @param version        Argon2 version.
+     * @param iterations     Iterations.
+     * @param memory         Memory.
+     * @param parallelism    Parallelism.
+     * @param pwd            Password.
+     * @param salt           Salt.
+     * @param secret         Secret (nullable).
+     * @param associatedData Associated data (nullable).
+     * @param hash           Byte array to write the hash to.
+     * @return Return code.
+     */
+    int ctx(Argon2Factory.Argon2Types type, Argon2Version version, int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, byte[] secret, byte[] associatedData, byte[] hash);
+
+    /**
+     * Calls {@code argon2_verify_ctx}.
+     *
+     * @param type           Argon2 type.
+     * @param version        Argon2 version.
+     * @param iterations     Iterations.
+     * @param memory         Memory.
+     * @param parallelism    Parallelism.
+     * @param pwd            Password.
+     * @param salt           Salt.
+     * @param secret         Secret (nullable).
+     * @param associatedData Associated data (nullable).
+     * @param hash           Raw hash to compare with.
+     * @return Return code.
+     */
+    int verifyCtx(Argon2Factory.Argon2Types type, Argon2Version version, int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, byte[] secret, byte[] associatedData, byte[] hash);
+
+    /**
+     * Calls {@code argon2_encodedlen}.
+     *
+     * @param type        Argon2 type.
+     * @param iterations  Iterations.
+     * @param memory      Memory.
+     * @param parallelism Parallelism.
+     * @param saltLength  Salt length.
+     * @param hashLength  Hash length.
+     * @return Length of the encoded hash in bytes, including the terminating null byte.
+     */
+    int encodedLength(Argon2Factory.Argon2Types type, int iterations, int memory, int parallelism, int saltLength, int hashLength);
+
+    /**
+     * Calls {@code argon2_error_message}.
+     *
+     * @param errorCode Error code.
+     * @return Error message.
+     */
+    String errorMessage(int errorCode);
+}
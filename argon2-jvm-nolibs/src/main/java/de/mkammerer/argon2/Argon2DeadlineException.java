@@ -0,0 +1,18 @@
+package de.mkammerer.argon2;
+
+/**
+ * Thrown if a hash hasn't been started because it couldn't be finished before its deadline, see
+ * {@link Argon2LoadShedder}.
+ */
+public class Argon2DeadlineException extends Argon2RejectedException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     *
+     * @param message Message.
+     */
+    public Argon2DeadlineException(String message) {
+        super(message);
+    }
+}
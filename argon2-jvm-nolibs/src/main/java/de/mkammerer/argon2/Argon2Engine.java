@@ -0,0 +1,505 @@
+package de.mkammerer.argon2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Pure Java implementation of the Argon2 algorithm (RFC 9106).
+ * <p>
+ * Produces the same output as the reference implementation in libargon2, including the input validation and the error
+ * messages. One instance computes exactly one hash, use {@link #hash} to compute a hash.
+ */
+final class Argon2Engine {
+    private static final int SYNC_POINTS = 4;
+    private static final int BLOCK_SIZE = 1024;
+    private static final int QWORDS_IN_BLOCK = BLOCK_SIZE / 8;
+    private static final int ADDRESSES_IN_BLOCK = 128;
+    private static final int PREHASH_DIGEST_LENGTH = 64;
+    private static final int PREHASH_SEED_LENGTH = PREHASH_DIGEST_LENGTH + 8;
+
+    private static final int MIN_OUTPUT_LENGTH = 4;
+    private static final int MIN_SALT_LENGTH = 8;
+    private static final int MIN_MEMORY = 2 * SYNC_POINTS;
+    private static final int MAX_LANES = 0xFFFFFF;
+
+    /**
+     * The memory matrix is a single long array, so it can't have more blocks than this.
+     */
+    private static final int MAX_MEMORY_BLOCKS = (Integer.MAX_VALUE - 8) / QWORDS_IN_BLOCK;
+
+    private static final long LOWER_32_BITS = 0xFFFFFFFFL;
+
+    /**
+     * Read only block of zeros, used to generate the addresses for data independent addressing.
+     */
+    private static final long[] ZERO_BLOCK = new long[QWORDS_IN_BLOCK];
+
+    private final Argon2Factory.Argon2Types type;
+    private final int version;
+    private final int passes;
+    private final int lanes;
+    private final int memoryBlocks;
+    private final int segmentLength;
+    private final int laneLength;
+    private final long[] memory;
+
+    private Argon2Engine(Argon2Factory.Argon2Types type, int version, int passes, int lanes, int memoryCost) {
+        this.type = type;
+        this.version = version;
+        this.passes = passes;
+        this.lanes = lanes;
+
+        // Same rounding as in libargon2: at least 2 blocks per segment, and a multiple of lanes * sync points
+        int blocks = Math.max(memoryCost, 2 * SYNC_POINTS * lanes);
+        this.segmentLength = blocks / (lanes * SYNC_POINTS);
+        this.laneLength = segmentLength * SYNC_POINTS;
+        this.memoryBlocks = segmentLength * lanes * SYNC_POINTS;
+        this.memory = new long[memoryBlocks * QWORDS_IN_BLOCK];
+    }
+
+    /**
+     * Computes an Argon2 hash.
+     *
+     * @param type           Argon2 type.
+     * @param version        Argon2 version.
+     * @param iterations     Number of iterations.
+     * @param memory         Memory usage in kibibytes.
+     * @param parallelism    Number of lanes.
+     * @param password       Password.
+     * @param salt           Salt.
+     * @param secret         Secret (nullable).
+     * @param associatedData Associated data (nullable).
+     * @param hashLength     Hash length in bytes.
+     * @param executor       Executor which fills the lanes in parallel. If null, the lanes are filled by the calling
+     *                       thread.
+     * @return Raw hash.
+     * @throws IllegalStateException If the parameters are invalid.
+     */
+    static byte[] hash(Argon2Factory.Argon2Types type, Argon2Version version, int iterations, int memory, int parallelism,
+                       byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Executor executor) {
+        validate(iterations, memory, parallelism, salt, hashLength);
+
+        Argon2Engine engine = new Argon2Engine(type, version.getVersion(), iterations, parallelism, memory);
+        try {
+            byte[] initialHash = engine.initialHash(memory, password, salt, secret, associatedData, hashLength);
+            engine.fillFirstBlocks(initialHash);
+            wipe(initialHash);
+
+            engine.fillMemoryBlocks(executor);
+
+            return engine.finish(hashLength);
+        } finally {
+            wipe(engine.memory);
+        }
+    }
+
+    private static void validate(int iterations, int memory, int parallelism, byte[] salt, int hashLength) {
+        // All parameters are uint32_t in libargon2, so negative values are huge
+        long memoryCost = memory & LOWER_32_BITS;
+        long lanes = parallelism & LOWER_32_BITS;
+
+        if (hashLength < MIN_OUTPUT_LENGTH) {
+            fail(-2, "Output is too short");
+        }
+        if (salt.length < MIN_SALT_LENGTH) {
+            fail(-6, "Salt is too short");
+        }
+        if (memoryCost < MIN_MEMORY || memoryCost < 8 * lanes) {
+            fail(-14, "Memory cost is too small");
+        }
+        if (memoryCost > MAX_MEMORY_BLOCKS) {
+            fail(-15, "Memory cost is too large");
+        }
+        if (iterations == 0) {
+            fail(-12, "Time cost is too small");
+        }
+        if (iterations < 0) {
+            fail(-13, "Time cost is too large");
+        }
+        if (lanes == 0) {
+            fail(-16, "Too few lanes");
+        }
+        if (lanes > MAX_LANES) {
+            fail(-17, "Too many lanes");
+        }
+    }
+
+    private static void fail(int code, String message) {
+        throw new IllegalStateException(String.format("%s (%d)", message, code));
+    }
+
+    private byte[] initialHash(int memoryCost, byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength) {
+        Blake2b blake2b = new Blake2b(PREHASH_DIGEST_LENGTH);
+        blake2b.updateInt(lanes);
+        blake2b.updateInt(hashLength);
+        blake2b.updateInt(memoryCost);
+        blake2b.updateInt(passes);
+        blake2b.updateInt(version);
+        blake2b.updateInt(type.getIndex());
+        updateWithLength(blake2b, password);
+        updateWithLength(blake2b, salt);
+        updateWithLength(blake2b, secret);
+        updateWithLength(blake2b, associatedData);
+
+        byte[] initialHash = new byte[PREHASH_SEED_LENGTH];
+        blake2b.doFinal(initialHash, 0);
+        return initialHash;
+    }
+
+    private static void updateWithLength(Blake2b blake2b, byte[] data) {
+        if (data == null) {
+            blake2b.updateInt(0);
+        } else {
+            blake2b.updateInt(data.length);
+            blake2b.update(data);
+        }
+    }
+
+    private void fillFirstBlocks(byte[] initialHash) {
+        byte[] block = new byte[BLOCK_SIZE];
+        for (int lane = 0; lane < lanes; lane++) {
+            storeInt(initialHash, PREHASH_DIGEST_LENGTH + 4, lane);
+
+            storeInt(initialHash, PREHASH_DIGEST_LENGTH, 0);
+            blake2bLong(block, BLOCK_SIZE, initialHash);
+            loadBlock(block, lane * laneLength);
+
+            storeInt(initialHash, PREHASH_DIGEST_LENGTH, 1);
+            blake2bLong(block, BLOCK_SIZE, initialHash);
+            loadBlock(block, lane * laneLength + 1);
+        }
+        wipe(block);
+    }
+
+    private void fillMemoryBlocks(Executor executor) {
+        for (int pass = 0; pass < passes; pass++) {
+            for (int slice = 0; slice < SYNC_POINTS; slice++) {
+                if (executor == null || lanes == 1) {
+                    for (int lane = 0; lane < lanes; lane++) {
+                        fillSegment(pass, lane, slice);
+                    }
+                } else {
+                    fillSliceInParallel(pass, slice, executor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the segments of all lanes of one slice in parallel. The slices are the synchronization points, so this
+     * returns only after all lanes have been filled.
+     * <p>
+     * The calling thread fills the first lane and then every lane no pool thread has started yet. This way no lane
+     * waits for a free pool thread, and sharing a saturated or shut down executor can't dead lock.
+     */
+    private void fillSliceInParallel(int pass, int slice, Executor executor) {
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(lanes - 1);
+        for (int lane = 1; lane < lanes; lane++) {
+            FutureTask<Void> task = new FutureTask<Void>(new SegmentFiller(pass, lane, slice), null);
+            tasks.add(task);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The task is run by the calling thread below
+            }
+        }
+
+        fillSegment(pass, 0, slice);
+
+        for (FutureTask<Void> task : tasks) {
+            // Does nothing if a pool thread has already started the task
+            task.run();
+            Futures.awaitUninterruptibly(task);
+        }
+    }
+
+    private void fillSegment(int pass, int lane, int slice) {
+        boolean dataIndependentAddressing = type == Argon2Factory.Argon2Types.ARGON2i
+                || (type == Argon2Factory.Argon2Types.ARGON2id && pass == 0 && slice < SYNC_POINTS / 2);
+
+        long[] blockR = new long[QWORDS_IN_BLOCK];
+        long[] blockTmp = new long[QWORDS_IN_BLOCK];
+        long[] addressBlock = null;
+        long[] inputBlock = null;
+
+        if (dataIndependentAddressing) {
+            addressBlock = new long[QWORDS_IN_BLOCK];
+            inputBlock = new long[QWORDS_IN_BLOCK];
+            inputBlock[0] = pass;
+            inputBlock[1] = lane;
+            inputBlock[2] = slice;
+            inputBlock[3] = memoryBlocks;
+            inputBlock[4] = passes;
+            inputBlock[5] = type.getIndex();
+        }
+
+        int startingIndex = 0;
+        if (pass == 0 && slice == 0) {
+            // The first two blocks have already been generated
+            startingIndex = 2;
+            if (dataIndependentAddressing) {
+                nextAddresses(addressBlock, inputBlock, blockR, blockTmp);
+            }
+        }
+
+        int currentOffset = lane * laneLength + slice * segmentLength + startingIndex;
+        int previousOffset = currentOffset % laneLength == 0 ? currentOffset + laneLength - 1 : currentOffset - 1;
+
+        for (int i = startingIndex; i < segmentLength; i++, currentOffset++, previousOffset++) {
+            if (currentOffset % laneLength == 1) {
+                previousOffset = currentOffset - 1;
+            }
+
+            long pseudoRandom;
+            if (dataIndependentAddressing) {
+                if (i % ADDRESSES_IN_BLOCK == 0) {
+                    nextAddresses(addressBlock, inputBlock, blockR, blockTmp);
+                }
+                pseudoRandom = addressBlock[i % ADDRESSES_IN_BLOCK];
+            } else {
+                pseudoRandom = memory[previousOffset * QWORDS_IN_BLOCK];
+            }
+
+            int referenceLane = (int) ((pseudoRandom >>> 32) % lanes);
+            if (pass == 0 && slice == 0) {
+                referenceLane = lane;
+            }
+
+            int referenceIndex = indexAlpha(pass, slice, i, pseudoRandom & LOWER_32_BITS, referenceLane == lane);
+            int referenceOffset = laneLength * referenceLane + referenceIndex;
+
+            boolean withXor = version != Argon2Version.V10.getVersion() && pass != 0;
+            fillBlock(memory, previousOffset * QWORDS_IN_BLOCK, memory, referenceOffset * QWORDS_IN_BLOCK,
+                    memory, currentOffset * QWORDS_IN_BLOCK, withXor, blockR, blockTmp);
+        }
+
+        wipe(blockR);
+        wipe(blockTmp);
+    }
+
+    private int indexAlpha(int pass, int slice, int index, long pseudoRandom, boolean sameLane) {
+        long referenceAreaSize;
+        if (pass == 0) {
+            if (slice == 0) {
+                // All but the previous block
+                referenceAreaSize = index - 1;
+            } else if (sameLane) {
+                referenceAreaSize = slice * segmentLength + index - 1;
+            } else {
+                referenceAreaSize = slice * segmentLength + (index == 0 ? -1 : 0);
+            }
+        } else if (sameLane) {
+            referenceAreaSize = laneLength - segmentLength + index - 1;
+        } else {
+            referenceAreaSize = laneLength - segmentLength + (index == 0 ? -1 : 0);
+        }
+
+        long relativePosition = (pseudoRandom * pseudoRandom) >>> 32;
+        relativePosition = referenceAreaSize - 1 - ((referenceAreaSize * relativePosition) >>> 32);
+
+        int startPosition = 0;
+        if (pass != 0) {
+            startPosition = slice == SYNC_POINTS - 1 ? 0 : (slice + 1) * segmentLength;
+        }
+
+        return (int) ((startPosition + relativePosition) % laneLength);
+    }
+
+    private static void nextAddresses(long[] addressBlock, long[] inputBlock, long[] blockR, long[] blockTmp) {
+        inputBlock[6]++;
+        fillBlock(ZERO_BLOCK, 0, inputBlock, 0, addressBlock, 0, false, blockR, blockTmp);
+        fillBlock(ZERO_BLOCK, 0, addressBlock, 0, addressBlock, 0, false, blockR, blockTmp);
+    }
+
+    private byte[] finish(int hashLength) {
+        long[] finalBlock = new long[QWORDS_IN_BLOCK];
+        for (int lane = 0; lane < lanes; lane++) {
+            int lastBlockOffset = (lane * laneLength + laneLength - 1) * QWORDS_IN_BLOCK;
+            for (int i = 0; i < QWORDS_IN_BLOCK; i++) {
+                finalBlock[i] ^= memory[lastBlockOffset + i];
+            }
+        }
+
+        byte[] finalBlockBytes = new byte[BLOCK_SIZE];
+        for (int i = 0; i < QWORDS_IN_BLOCK; i++) {
+            storeLong(finalBlockBytes, i * 8, finalBlock[i]);
+        }
+        wipe(finalBlock);
+
+        byte[] hash = new byte[hashLength];
+        blake2bLong(hash, hashLength, finalBlockBytes);
+        wipe(finalBlockBytes);
+
+        return hash;
+    }
+
+    /**
+     * Compression function G, writes G(x, y) (or G(x, y) XOR dst if withXor is set) to dst. dst may be y.
+     */
+    private static void fillBlock(long[] x, int xOffset, long[] y, int yOffset, long[] dst, int dstOffset, boolean withXor,
+                                  long[] blockR, long[] blockTmp) {
+        for (int i = 0; i < QWORDS_IN_BLOCK; i++) {
+            long value = x[xOffset + i] ^ y[yOffset + i];
+            blockR[i] = value;
+            blockTmp[i] = withXor ? value ^ dst[dstOffset + i] : value;
+        }
+
+        // Apply Blake2 on columns of 64-bit words: (0,1,...,15), then (16,17,..31)... finally (112,113,...127)
+        for (int i = 0; i < 8; i++) {
+            int b = 16 * i;
+            roundFunction(blockR, b, b + 1, b + 2, b + 3, b + 4, b + 5, b + 6, b + 7,
+                    b + 8, b + 9, b + 10, b + 11, b + 12, b + 13, b + 14, b + 15);
+        }
+
+        // Apply Blake2 on rows of 64-bit words: (0,1,16,17,...112,113), then (2,3,18,19,...,114,115).. finally (14,15,30,31,...,126,127)
+        for (int i = 0; i < 8; i++) {
+            int b = 2 * i;
+            roundFunction(blockR, b, b + 1, b + 16, b + 17, b + 32, b + 33, b + 48, b + 49,
+                    b + 64, b + 65, b + 80, b + 81, b + 96, b + 97, b + 112, b + 113);
+        }
+
+        for (int i = 0; i < QWORDS_IN_BLOCK; i++) {
+            dst[dstOffset + i] = blockTmp[i] ^ blockR[i];
+        }
+    }
+
+    private static void roundFunction(long[] v, int v0, int v1, int v2, int v3, int v4, int v5, int v6, int v7,
+                                      int v8, int v9, int v10, int v11, int v12, int v13, int v14, int v15) {
+        g(v, v0, v4, v8, v12);
+        g(v, v1, v5, v9, v13);
+        g(v, v2, v6, v10, v14);
+        g(v, v3, v7, v11, v15);
+
+        g(v, v0, v5, v10, v15);
+        g(v, v1, v6, v11, v12);
+        g(v, v2, v7, v8, v13);
+        g(v, v3, v4, v9, v14);
+    }
+
+    private static void g(long[] v, int ia, int ib, int ic, int id) {
+        long a = v[ia];
+        long b = v[ib];
+        long c = v[ic];
+        long d = v[id];
+
+        a = fBlaMka(a, b);
+        d = Long.rotateRight(d ^ a, 32);
+        c = fBlaMka(c, d);
+        b = Long.rotateRight(b ^ c, 24);
+        a = fBlaMka(a, b);
+        d = Long.rotateRight(d ^ a, 16);
+        c = fBlaMka(c, d);
+        b = Long.rotateRight(b ^ c, 63);
+
+        v[ia] = a;
+        v[ib] = b;
+        v[ic] = c;
+        v[id] = d;
+    }
+
+    private static long fBlaMka(long x, long y) {
+        return x + y + 2 * ((x & LOWER_32_BITS) * (y & LOWER_32_BITS));
+    }
+
+    /**
+     * Variable length hash function H' from the Argon2 specification, built on Blake2b.
+     */
+    static void blake2bLong(byte[] out, int outLength, byte[] in) {
+        byte[] outLengthBytes = new byte[4];
+        storeInt(outLengthBytes, 0, outLength);
+
+        if (outLength <= Blake2b.MAX_OUTPUT_LENGTH) {
+            Blake2b blake2b = new Blake2b(outLength);
+            blake2b.update(outLengthBytes);
+            blake2b.update(in);
+            blake2b.doFinal(out, 0);
+            return;
+        }
+
+        byte[] buffer = new byte[Blake2b.MAX_OUTPUT_LENGTH];
+        Blake2b blake2b = new Blake2b(Blake2b.MAX_OUTPUT_LENGTH);
+        blake2b.update(outLengthBytes);
+        blake2b.update(in);
+        blake2b.doFinal(buffer, 0);
+
+        int half = Blake2b.MAX_OUTPUT_LENGTH / 2;
+        System.arraycopy(buffer, 0, out, 0, half);
+        int position = half;
+        int toProduce = outLength - half;
+        while (toProduce > Blake2b.MAX_OUTPUT_LENGTH) {
+            blake2b = new Blake2b(Blake2b.MAX_OUTPUT_LENGTH);
+            blake2b.update(buffer);
+            blake2b.doFinal(buffer, 0);
+            System.arraycopy(buffer, 0, out, position, half);
+            position += half;
+            toProduce -= half;
+        }
+
+        blake2b = new Blake2b(toProduce);
+        blake2b.update(buffer);
+        blake2b.doFinal(out, position);
+        wipe(buffer);
+    }
+
+    private void loadBlock(byte[] block, int blockIndex) {
+        int offset = blockIndex * QWORDS_IN_BLOCK;
+        for (int i = 0; i < QWORDS_IN_BLOCK; i++) {
+            memory[offset + i] = loadLong(block, i * 8);
+        }
+    }
+
+    static long loadLong(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFFL)
+                | (bytes[offset + 1] & 0xFFL) << 8
+                | (bytes[offset + 2] & 0xFFL) << 16
+                | (bytes[offset + 3] & 0xFFL) << 24
+                | (bytes[offset + 4] & 0xFFL) << 32
+                | (bytes[offset + 5] & 0xFFL) << 40
+                | (bytes[offset + 6] & 0xFFL) << 48
+                | (bytes[offset + 7] & 0xFFL) << 56;
+    }
+
+    static void storeLong(byte[] bytes, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            bytes[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    static void storeInt(byte[] bytes, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            bytes[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    static void wipe(byte[] array) {
+        Arrays.fill(array, (byte) 0);
+    }
+
+    static void wipe(long[] array) {
+        Arrays.fill(array, 0L);
+    }
+
+    /**
+     * Fills the segment of one lane in one slice.
+     */
+    private final class SegmentFiller implements Runnable {
+        private final int pass;
+        private final int lane;
+        private final int slice;
+
+        SegmentFiller(int pass, int lane, int slice) {
+            this.pass = pass;
+            this.lane = lane;
+            this.slice = slice;
+        }
+
+        @Override
+        public void run() {
+            fillSegment(pass, lane, slice);
+        }
+    }
+}
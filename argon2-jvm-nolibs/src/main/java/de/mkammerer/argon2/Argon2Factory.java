@@ -2,6 +2,8 @@ package de.mkammerer.argon2;
 
 import de.mkammerer.argon2.jna.Argon2_type;
 
+import java.util.concurrent.Executor;
+
 /**
  * Factory for {@link Argon2} instances.
  */
@@ -96,14 +98,126 @@ public final class Argon2Factory {
         return createInternal(type, defaultSaltLength, defaultHashLength);
     }
 
+    /**
+     * Creates a new {@link Argon2Advanced} instance with the given type, which takes the work memory of the native
+     * library from the given pool instead of allocating it on every call.
+     *
+     * @param type              Argon2 type.
+     * @param defaultSaltLength Default salt length in bytes. Can be overridden by some methods.
+     * @param defaultHashLength Default hash length in bytes. Can be overridden by some methods.
+     * @param memoryPool        Pool for the work memory. Can be shared by several instances.
+     * @return Argon2Advanced instance.
+     */
+    public static Argon2Advanced createAdvanced(Argon2Types type, int defaultSaltLength, int defaultHashLength, Argon2MemoryPool memoryPool) {
+        if (memoryPool == null) throw new IllegalArgumentException("memoryPool must not be null");
+        return createInternal(type, defaultSaltLength, defaultHashLength, memoryPool);
+    }
+
+    /**
+     * Creates a new {@link Argon2} instance with the given type, which is implemented in pure Java.
+     * <p>
+     * The pure Java implementation needs no native library and produces the same hashes as the native one. Lanes are
+     * filled in parallel on a shared executor with one thread per available processor.
+     *
+     * @param type Argon2 type.
+     * @return Argon2 instance.
+     */
+    public static Argon2 createJava(Argon2Types type) {
+        return createJavaAdvanced(type);
+    }
+
+    /**
+     * Creates a new {@link Argon2Advanced} instance with the given type, which is implemented in pure Java.
+     * <p>
+     * The pure Java implementation needs no native library and produces the same hashes as the native one. Lanes are
+     * filled in parallel on a shared executor with one thread per available processor.
+     *
+     * @param type Argon2 type.
+     * @return Argon2Advanced instance.
+     */
+    public static Argon2Advanced createJavaAdvanced(Argon2Types type) {
+        return createJavaAdvanced(type, Argon2Constants.DEFAULT_SALT_LENGTH, Argon2Constants.DEFAULT_HASH_LENGTH, JavaArgon2.defaultExecutor());
+    }
+
+    /**
+     * Creates a new {@link Argon2Advanced} instance with the given type, which is implemented in pure Java.
+     * <p>
+     * The lanes of a hash are filled in parallel on the given executor, e.g. a {@code ForkJoinPool} which is shared
+     * with other parts of the application. The calling thread fills lanes, too, so the executor may be saturated.
+     *
+     * @param type              Argon2 type.
+     * @param defaultSaltLength Default salt length in bytes. Can be overridden by some methods.
+     * @param defaultHashLength Default hash length in bytes. Can be overridden by some methods.
+     * @param executor          Executor which fills the lanes in parallel. If null, all lanes are filled by the
+     *                          calling thread.
+     * @return Argon2Advanced instance.
+     */
+    public static Argon2Advanced createJavaAdvanced(Argon2Types type, int defaultSaltLength, int defaultHashLength, Executor executor) {
+        return new JavaArgon2(type, defaultSaltLength, defaultHashLength, executor);
+    }
+
+    /**
+     * Limits the number of threads on which all native instances compute lanes at the same time.
+     * <p>
+     * As long as the budget isn't used up, a hash computes all its lanes in parallel. Under load, hashes get fewer
+     * threads, down to computing the lanes one after the other on the calling thread. The hashes stay the same, as they
+     * only depend on the number of lanes ({@code parallelism}). A good budget is the number of CPUs. While the budget
+     * is enabled, libargon2 is always called through JNA.
+     *
+     * @param threads Maximum number of threads, 0 disables the budget (default).
+     */
+    public static void setNativeThreadBudget(int threads) {
+        if (threads < 0) throw new IllegalArgumentException("threads must be >= 0");
+        NativeThreadBudget.GLOBAL.setLimit(threads);
+    }
+
+    /**
+     * Returns the maximum number of threads on which all native instances compute lanes at the same time.
+     *
+     * @return Maximum number of threads, 0 if the budget is disabled.
+     * @see #setNativeThreadBudget(int)
+     */
+    public static int getNativeThreadBudget() {
+        return NativeThreadBudget.GLOBAL.getLimit();
+    }
+
+    /**
+     * Runs the native hashes of virtual threads on a pool of platform threads.
+     * <p>
+     * A virtual thread which is in a native call pins its carrier thread, so a few concurrent hashes can stall all
+     * other virtual threads. With offloading, the virtual thread parks until a platform thread has computed the hash,
+     * and its carrier runs other virtual threads in the meantime. Calls from platform threads aren't affected. A good
+     * number of threads is the number of CPUs.
+     *
+     * @param threads Number of platform threads, 0 disables the offloading (default).
+     */
+    public static void setVirtualThreadOffload(int threads) {
+        if (threads < 0) throw new IllegalArgumentException("threads must be >= 0");
+        VirtualThreadOffload.setThreads(threads);
+    }
+
+    /**
+     * Returns the number of platform threads which compute the native hashes of virtual threads.
+     *
+     * @return Number of threads, 0 if the offloading is disabled.
+     * @see #setVirtualThreadOffload(int)
+     */
+    public static int getVirtualThreadOffload() {
+        return VirtualThreadOffload.getThreads();
+    }
+
     private static Argon2Advanced createInternal(Argon2Types type, int defaultSaltLength, int defaultHashLength) {
+        return createInternal(type, defaultSaltLength, defaultHashLength, null);
+    }
+
+    static Argon2Advanced createInternal(Argon2Types type, int defaultSaltLength, int defaultHashLength, Argon2MemoryPool memoryPool) {
         switch (type) {
             case ARGON2i:
-                return new Argon2i(defaultSaltLength, defaultHashLength);
+                return new Argon2i(defaultSaltLength, defaultHashLength, memoryPool);
             case ARGON2d:
-                return new Argon2d(defaultSaltLength, defaultHashLength);
+                return new Argon2d(defaultSaltLength, defaultHashLength, memoryPool);
             case ARGON2id:
-                return new Argon2id(defaultSaltLength, defaultHashLength);
+                return new Argon2id(defaultSaltLength, defaultHashLength, memoryPool);
             default:
                 throw new IllegalArgumentException("Invalid argon2 type");
         }
@@ -126,7 +240,13 @@ public final class Argon2Factory {
          */
         ARGON2id(2);
 
-        private final Argon2_type jnaType;
+        private final int idx;
+
+        /**
+         * Created lazily, as loading the JNA type loads the JNA native library. The pure Java implementation
+         * must work without it.
+         */
+        private volatile Argon2_type jnaType;
 
         /**
          * Constructor.
@@ -134,11 +254,25 @@ public final class Argon2Factory {
          * @param idx Index from the Argon2 API.
          */
         Argon2Types(int idx) {
-            this.jnaType = new Argon2_type(idx);
+            this.idx = idx;
         }
 
         public Argon2_type getJnaType() {
-            return jnaType;
+            Argon2_type type = jnaType;
+            if (type == null) {
+                type = new Argon2_type(idx);
+                jnaType = type;
+            }
+            return type;
+        }
+
+        /**
+         * Returns the index from the Argon2 API.
+         *
+         * @return Index from the Argon2 API.
+         */
+        int getIndex() {
+            return idx;
         }
     }
 }
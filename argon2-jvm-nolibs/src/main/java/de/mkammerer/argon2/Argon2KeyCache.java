@@ -0,0 +1,223 @@
+package de.mkammerer.argon2;
+
+import com.sun.jna.Memory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches keys which are derived with {@link Argon2Advanced#pbkdf(int, int, int, byte[], byte[], int)}.
+ * <p>
+ * Deriving the same key again, e.g. the encryption key of a user within a session, costs a full Argon2 run each time.
+ * This class keeps the derived keys in native memory, outside of the Java heap, so they don't end up in heap dumps or
+ * get copied around by the garbage collector. The memory of a key is wiped and freed when it is evicted: after the time
+ * to live, when more than {@code maxEntries} keys are cached (least recently used first), or when it's invalidated.
+ * <p>
+ * The cache is keyed by an HMAC-SHA256 of the password and the parameters with a random per-instance key, so neither
+ * the password nor a plain digest of it is kept. Concurrent misses for the same key derive it independently. This class
+ * is thread safe.
+ */
+public final class Argon2KeyCache {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Argon2Advanced argon2;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final SecretKeySpec macKey;
+
+    /**
+     * Cached keys in access order, guarded by {@code this}.
+     */
+    private final LinkedHashMap<CacheKey, Entry> entries = new LinkedHashMap<CacheKey, Entry>(16, 0.75f, true);
+
+    /**
+     * Constructor.
+     *
+     * @param argon2     Instance which derives the keys.
+     * @param maxEntries Maximum number of cached keys.
+     * @param ttl        Time after which a key is evicted.
+     * @param unit       Unit of the time to live.
+     */
+    public Argon2KeyCache(Argon2Advanced argon2, int maxEntries, long ttl, TimeUnit unit) {
+        if (argon2 == null) throw new IllegalArgumentException("argon2 must not be null");
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be >= 1");
+        if (ttl <= 0) throw new IllegalArgumentException("ttl must be > 0");
+
+        this.argon2 = argon2;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+
+        this.macKey = HmacSha256.randomKey();
+    }
+
+    /**
+     * Derives a key from a password, or returns the cached key.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to derive the key from
+     * @param salt        Salt
+     * @param keyLength   Length of the key in bytes
+     * @return Derived key. A new array, which should be wiped after use.
+     */
+    public byte[] pbkdf(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int keyLength) {
+        CacheKey cacheKey = new CacheKey(mac(iterations, memory, parallelism, password, salt, keyLength), salt);
+
+        synchronized (this) {
+            Entry entry = entries.get(cacheKey);
+            if (entry != null) {
+                if (entry.expiry - System.nanoTime() > 0) {
+                    return entry.key.getByteArray(0, keyLength);
+                }
+                entries.remove(cacheKey);
+                entry.wipe();
+            }
+        }
+
+        byte[] key = argon2.pbkdf(iterations, memory, parallelism, password, salt, keyLength);
+        put(cacheKey, key);
+        return key;
+    }
+
+    /**
+     * Derives a key from a password, or returns the cached key.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to derive the key from
+     * @param charset     Charset of the password
+     * @param salt        Salt
+     * @param keyLength   Length of the key in bytes
+     * @return Derived key. A new array, which should be wiped after use.
+     */
+    public byte[] pbkdf(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, int keyLength) {
+        byte[] pwd = AbstractArgon2.toByteArray(password, charset);
+        try {
+            return pbkdf(iterations, memory, parallelism, pwd, salt, keyLength);
+        } finally {
+            Arrays.fill(pwd, (byte) 0);
+        }
+    }
+
+    /**
+     * Wipes all cached keys which have been derived with the given salt, e.g. when the user logs out or changes the
+     * password.
+     *
+     * @param salt Salt.
+     */
+    public synchronized void invalidate(byte[] salt) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (Arrays.equals(entry.salt, salt)) {
+                iterator.remove();
+                entry.wipe();
+            }
+        }
+    }
+
+    /**
+     * Wipes all cached keys.
+     */
+    public synchronized void invalidateAll() {
+        for (Entry entry : entries.values()) {
+            entry.wipe();
+        }
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of cached keys, including expired keys which haven't been wiped yet.
+     *
+     * @return Number of cached keys.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void put(CacheKey cacheKey, byte[] key) {
+        Memory memory = new Memory(key.length);
+        memory.write(0, key, 0, key.length);
+        Entry entry = new Entry(memory, cacheKey.salt, System.nanoTime() + ttlNanos);
+
+        synchronized (this) {
+            Entry previous = entries.put(cacheKey, entry);
+            if (previous != null) {
+                previous.wipe();
+            }
+            evict(System.nanoTime());
+        }
+    }
+
+    /**
+     * Wipes the expired keys, then the least recently used keys until at most {@code maxEntries} are left.
+     */
+    private void evict(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        int size = entries.size();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (size > maxEntries || entry.expiry - now <= 0) {
+                iterator.remove();
+                entry.wipe();
+                size--;
+            }
+        }
+    }
+
+    private byte[] mac(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int keyLength) {
+        Mac mac = HmacSha256.create(macKey);
+        mac.update(String.format("%d,%d,%d,%d,%d,", iterations, memory, parallelism, keyLength, salt.length).getBytes(UTF_8));
+        mac.update(salt);
+        return mac.doFinal(password);
+    }
+
+    private static final class CacheKey {
+        private final byte[] mac;
+        private final byte[] salt;
+        private final int hashCode;
+
+        CacheKey(byte[] mac, byte[] salt) {
+            this.mac = mac;
+            this.salt = salt.clone();
+            this.hashCode = Arrays.hashCode(mac);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            return Arrays.equals(mac, ((CacheKey) o).mac);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+        private final Memory key;
+        private final byte[] salt;
+        private final long expiry;
+
+        Entry(Memory key, byte[] salt, long expiry) {
+            this.key = key;
+            this.salt = salt;
+            this.expiry = expiry;
+        }
+
+        void wipe() {
+            key.clear();
+            key.close();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package de.mkammerer.argon2;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the hashes of the wrapped {@link Argon2Advanced} instance with a limited concurrency and doesn't start hashes
+ * which can't finish before their deadline.
+ * <p>
+ * Once the native library computes a hash, the call can't be interrupted. If the client of a login request has given
+ * up already, e.g. because its HTTP request timed out, the only way to save the work is to never start it. The
+ * deadline variants of {@code hash} and {@code verify} estimate how long the call waits for one of the
+ * {@code maxConcurrent} slots and how long the hash takes, and throw an {@link Argon2DeadlineException} right away if
+ * the deadline can't be met. The same happens if the deadline passes while waiting for a slot.
+ * <p>
+ * The estimates are learned from the hashes which have finished normally: the time of a hash is assumed to grow with
+ * {@code memory * iterations}. If no hash is running, a hash is only rejected if its deadline has already passed, so
+ * that the estimate keeps being corrected. The methods without a deadline wait for a slot as long as needed. This class
+ * is thread safe.
+ */
+public final class Argon2LoadShedder extends Argon2Wrapper {
+    /**
+     * Weight of the newest sample in the moving average.
+     */
+    private static final double SAMPLE_WEIGHT = 0.2;
+
+    /**
+     * Marks calls without a deadline.
+     */
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private final int maxConcurrent;
+    private final Semaphore slots;
+
+    /**
+     * Work (memory * iterations) of the calls which wait for a slot.
+     */
+    private final AtomicLong queuedWork = new AtomicLong();
+
+    /**
+     * Work (memory * iterations) of the calls which have a slot.
+     */
+    private final AtomicLong runningWork = new AtomicLong();
+
+    /**
+     * Moving average of the nanoseconds per unit of work, 0 if unknown. Guarded by {@code this}.
+     */
+    private double nanosPerWork;
+
+    /**
+     * Constructor.
+     *
+     * @param argon2        Instance which computes the hashes.
+     * @param maxConcurrent Number of hashes which run at the same time, e.g. the number of CPUs.
+     */
+    public Argon2LoadShedder(Argon2Advanced argon2, int maxConcurrent) {
+        super(argon2);
+        if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be >= 1");
+
+        this.maxConcurrent = maxConcurrent;
+        this.slots = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Hashes a password, if this can be done within the given time.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to hash
+     * @param timeout     Time until the deadline
+     * @param unit        Unit of the timeout
+     * @return Hashed password.
+     * @throws Argon2DeadlineException If the hash can't be computed before the deadline. The hash hasn't been started.
+     */
+    public String hash(final int iterations, final int memory, final int parallelism, final char[] password, long timeout, TimeUnit unit) {
+        return call(iterations, memory, deadline(timeout, unit), new Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return getDelegate().hash(iterations, memory, parallelism, password);
+            }
+        });
+    }
+
+    /**
+     * Hashes the given data, if this can be done within the given time.
+     *
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param data        Data to hash
+     * @param timeout     Time until the deadline
+     * @param unit        Unit of the timeout
+     * @return Hashed data.
+     * @throws Argon2DeadlineException If the hash can't be computed before the deadline. The hash hasn't been started.
+     */
+    public String hash(final int iterations, final int memory, final int parallelism, final byte[] data, long timeout, TimeUnit unit) {
+        return call(iterations, memory, deadline(timeout, unit), new Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return getDelegate().hash(iterations, memory, parallelism, data);
+            }
+        });
+    }
+
+    /**
+     * Verifies a password against a hash, if this can be done within the given time.
+     *
+     * @param hash     Hash
+     * @param password Password
+     * @param timeout  Time until the deadline
+     * @param unit     Unit of the timeout
+     * @return True if the password matches the hash, false otherwise.
+     * @throws Argon2DeadlineException If the hash can't be verified before the deadline. The verification hasn't been
+     *                                 started.
+     */
+    public boolean verify(final String hash, final char[] password, long timeout, TimeUnit unit) {
+        Call<Boolean, RuntimeException> call = new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return getDelegate().verify(hash, password);
+            }
+        };
+        EncodedHash encoded = parse(hash);
+        if (encoded == null) {
+            return call.call();
+        }
+        return call(encoded.getIterations(), encoded.getMemory(), deadline(timeout, unit), call);
+    }
+
+    /**
+     * Verifies the given data against a hash, if this can be done within the given time.
+     *
+     * @param hash    Hash
+     * @param data    Data
+     * @param timeout Time until the deadline
+     * @param unit    Unit of the timeout
+     * @return True if the data matches the hash, false otherwise.
+     * @throws Argon2DeadlineException If the hash can't be verified before the deadline. The verification hasn't been
+     *                                 started.
+     */
+    public boolean verify(final String hash, final byte[] data, long timeout, TimeUnit unit) {
+        Call<Boolean, RuntimeException> call = new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return getDelegate().verify(hash, data);
+            }
+        };
+        EncodedHash encoded = parse(hash);
+        if (encoded == null) {
+            return call.call();
+        }
+        return call(encoded.getIterations(), encoded.getMemory(), deadline(timeout, unit), call);
+    }
+
+    /**
+     * Returns the estimated time of a hash, without waiting for a slot.
+     *
+     * @param iterations Number of iterations.
+     * @param memory     Memory in KiB.
+     * @param unit       Unit of the result.
+     * @return Estimated time, 0 if nothing has been hashed yet.
+     */
+    public long estimateHashTime(int iterations, int memory, TimeUnit unit) {
+        return unit.convert(estimate(work(iterations, memory)), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    void enter(int iterations, int memory) {
+        admit(work(iterations, memory), NO_DEADLINE);
+    }
+
+    @Override
+    void exit(int iterations, int memory, long nanos) {
+        finish(work(iterations, memory), nanos);
+    }
+
+    /**
+     * Runs a call to the wrapped instance in a slot.
+     *
+     * @param iterations Number of iterations.
+     * @param memory     Memory cost in KiB.
+     * @param deadline   Deadline in {@link System#nanoTime()}.
+     * @param call       Call to the wrapped instance.
+     * @param <T>        Type of the result.
+     * @return Result of the call.
+     */
+    private <T> T call(int iterations, int memory, long deadline, Call<T, RuntimeException> call) {
+        long work = work(iterations, memory);
+        admit(work, deadline);
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            T result = call.call();
+            completed = true;
+            return result;
+        } finally {
+            finish(work, completed ? System.nanoTime() - start : -1);
+        }
+    }
+
+    /**
+     * Waits for a slot.
+     *
+     * @param work     Work of the call.
+     * @param deadline Deadline in {@link System#nanoTime()}, or {@link #NO_DEADLINE}.
+     */
+    private void admit(long work, long deadline) {
+        // If nothing runs, the call is started anyway, so that a wrong estimate is corrected by the next sample
+        long compute = isIdle() ? 0 : estimate(work);
+        if (deadline != NO_DEADLINE) {
+            long left = deadline - System.nanoTime();
+            long wait = estimateWait();
+            if (left <= 0 || wait + compute > left) {
+                throw deadlineException(wait + compute, left);
+            }
+        }
+
+        queuedWork.addAndGet(work);
+        try {
+            if (deadline == NO_DEADLINE) {
+                slots.acquire();
+            } else {
+                // Give up waiting as soon as the hash can't finish in time anymore
+                long maxWait = deadline - System.nanoTime() - compute;
+                if (maxWait <= 0 || !slots.tryAcquire(maxWait, TimeUnit.NANOSECONDS)) {
+                    throw deadlineException(compute, deadline - System.nanoTime());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Argon2RejectedException("Interrupted while waiting for a slot", e);
+        } finally {
+            queuedWork.addAndGet(-work);
+        }
+        runningWork.addAndGet(work);
+    }
+
+    /**
+     * Gives back the slot and learns from the time of the hash.
+     *
+     * @param work  Work of the call.
+     * @param nanos Time of the hash, or -1 if it has thrown.
+     */
+    private void finish(long work, long nanos) {
+        runningWork.addAndGet(-work);
+        slots.release();
+        // A call which has thrown may have failed before hashing, so its time says nothing about the work
+        if (work > 0 && nanos >= 0) {
+            record((double) nanos / work);
+        }
+    }
+
+    private synchronized void record(double sample) {
+        nanosPerWork = nanosPerWork == 0 ? sample : nanosPerWork + SAMPLE_WEIGHT * (sample - nanosPerWork);
+    }
+
+    private synchronized long estimate(long work) {
+        return (long) (nanosPerWork * work);
+    }
+
+    /**
+     * Estimates how long a new call waits for a slot: the queued calls have to run first, and the running calls are
+     * on average half done.
+     *
+     * @return Estimated wait in nanoseconds.
+     */
+    private long estimateWait() {
+        long queued = queuedWork.get();
+        if (queued == 0 && slots.availablePermits() > 0) {
+            return 0;
+        }
+        return estimate(queued + runningWork.get() / 2) / maxConcurrent;
+    }
+
+    private boolean isIdle() {
+        return runningWork.get() == 0 && queuedWork.get() == 0;
+    }
+
+    private static long work(int iterations, int memory) {
+        return (long) Math.max(iterations, 1) * Math.max(memory, 1);
+    }
+
+    private static long deadline(long timeout, TimeUnit unit) {
+        if (unit == null) throw new IllegalArgumentException("unit must not be null");
+        return System.nanoTime() + unit.toNanos(timeout);
+    }
+
+    private static Argon2DeadlineException deadlineException(long expected, long left) {
+        return new Argon2DeadlineException(String.format("Deadline can't be met: %d ms expected, %d ms left",
+                TimeUnit.NANOSECONDS.toMillis(expected), TimeUnit.NANOSECONDS.toMillis(Math.max(left, 0))));
+    }
+}
@@ -0,0 +1,84 @@
+package de.mkammerer.argon2;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the memory which all hashes of the wrapped {@link Argon2Advanced} instance use at the same time.
+ * <p>
+ * Every hash needs {@code memory} KiB while it runs. Without a limit, many concurrent logins allocate this memory all
+ * at once, which may get the process killed for running out of memory. A hash which doesn't fit into the budget waits
+ * until enough memory is given back by the running hashes. If it still doesn't fit after the timeout, an
+ * {@link Argon2RejectedException} is thrown - also by the verify methods, so that an overloaded system can't be
+ * mistaken for a wrong password.
+ * <p>
+ * For verify, the memory is read from the encoded hash. Waiting hashes are admitted in order of arrival. A hash which
+ * needs more than the whole budget waits until no other hash runs. This class is thread safe.
+ */
+public final class Argon2MemoryBudget extends Argon2Wrapper {
+    private final int maxMemory;
+    private final long timeoutNanos;
+    private final Semaphore semaphore;
+
+    /**
+     * Constructor.
+     *
+     * @param argon2    Instance which computes the hashes.
+     * @param maxMemory Memory in KiB which all hashes may use at the same time.
+     * @param timeout   How long to wait for memory, 0 means not at all.
+     * @param unit      Unit of the timeout.
+     */
+    public Argon2MemoryBudget(Argon2Advanced argon2, int maxMemory, long timeout, TimeUnit unit) {
+        super(argon2);
+        if (maxMemory < 1) throw new IllegalArgumentException("maxMemory must be >= 1");
+        if (timeout < 0) throw new IllegalArgumentException("timeout must be >= 0");
+        if (unit == null) throw new IllegalArgumentException("unit must not be null");
+
+        this.maxMemory = maxMemory;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.semaphore = new Semaphore(maxMemory, true);
+    }
+
+    /**
+     * Returns the memory which all hashes may use at the same time.
+     *
+     * @return Memory in KiB.
+     */
+    public int getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Returns the memory which is currently not used by any hash.
+     *
+     * @return Memory in KiB.
+     */
+    public int getAvailableMemory() {
+        return semaphore.availablePermits();
+    }
+
+    @Override
+    void enter(int iterations, int memory) {
+        int permits = permits(memory);
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(permits, timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Argon2RejectedException("Interrupted while waiting for the memory budget", e);
+        }
+        if (!acquired) {
+            throw new Argon2RejectedException(String.format("Memory budget exhausted: %d KiB needed, %d of %d KiB available",
+                    memory, semaphore.availablePermits(), maxMemory));
+        }
+    }
+
+    @Override
+    void exit(int iterations, int memory, long nanos) {
+        semaphore.release(permits(memory));
+    }
+
+    private int permits(int memory) {
+        return Math.min(Math.max(memory, 1), maxMemory);
+    }
+}
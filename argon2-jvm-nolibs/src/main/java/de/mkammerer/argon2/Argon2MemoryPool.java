@@ -0,0 +1,337 @@
+package de.mkammerer.argon2;
+
+import com.sun.jna.CallbackReference;
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import de.mkammerer.argon2.jna.Allocate_fptr;
+import de.mkammerer.argon2.jna.Argon2Library;
+import de.mkammerer.argon2.jna.Deallocate_fptr;
+import de.mkammerer.argon2.jna.Size_t;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool for the work memory of the native Argon2 library.
+ * <p>
+ * Without a pool, libargon2 allocates and frees the work memory ({@code memory} KiB) on every call, so every hash pays
+ * for mapping the memory and for the page faults when touching it. The pool is plugged into libargon2 through the
+ * {@code allocate_cbk} and {@code free_cbk} callbacks and keeps the freed memory for the next calls, on any thread.
+ * <p>
+ * Blocks are rounded up to the next power of two and written once when they are created, so their pages are already
+ * faulted in when they are handed out. A returned block is wiped before it goes back into the pool. At most
+ * {@code maxPooledBytes} are kept; blocks which haven't been used for longer than the idle time are freed on the next
+ * return to the pool or on {@link #trim()}.
+ * <p>
+ * Use it with {@link Argon2Factory#createAdvanced(Argon2Factory.Argon2Types, int, int, Argon2MemoryPool)}. One pool
+ * can be shared by several instances. This class is thread safe.
+ */
+public final class Argon2MemoryPool {
+    /**
+     * Smallest block size, one Argon2 block.
+     */
+    private static final long MIN_BLOCK_SIZE = 1024;
+
+    private final long maxPooledBytes;
+    private final long maxIdleNanos;
+    private final boolean hugePages;
+
+    /**
+     * Whether at least one block has been backed by huge pages.
+     */
+    private volatile boolean hugePagesUsed;
+
+    /**
+     * Pooled blocks, most recently returned first.
+     */
+    private final LinkedList<Block> pooled = new LinkedList<Block>();
+
+    /**
+     * Blocks which are used by libargon2, by address.
+     */
+    private final Map<Long, Block> leased = new HashMap<Long, Block>();
+
+    private long pooledBytes;
+
+    // The callbacks must be strongly referenced as long as libargon2 can call them
+    private final Allocate_fptr allocateCallback = new Allocate_fptr() {
+        @Override
+        public int invoke(Pointer memory, Size_t bytesToAllocate) {
+            Block block = lease(bytesToAllocate.longValue());
+            if (block == null) {
+                return Argon2Library.ARGON2_MEMORY_ALLOCATION_ERROR;
+            }
+            memory.setPointer(0, block.pointer);
+            return Argon2Library.ARGON2_OK;
+        }
+    };
+
+    private final Deallocate_fptr deallocateCallback = new Deallocate_fptr() {
+        @Override
+        public void invoke(Pointer memory, Size_t bytesToAllocate) {
+            release(Pointer.nativeValue(memory));
+        }
+    };
+
+    private final Pointer allocateFunction = CallbackReference.getFunctionPointer(allocateCallback);
+    private final Pointer deallocateFunction = CallbackReference.getFunctionPointer(deallocateCallback);
+
+    /**
+     * Constructor.
+     *
+     * @param maxPooledBytes Maximum number of bytes which are kept in the pool. Memory which is in use by libargon2
+     *                       doesn't count.
+     * @param maxIdleTime    Blocks which haven't been used for this time are freed.
+     * @param unit           Unit of {@code maxIdleTime}.
+     */
+    public Argon2MemoryPool(long maxPooledBytes, long maxIdleTime, TimeUnit unit) {
+        this(maxPooledBytes, maxIdleTime, unit, false);
+    }
+
+    /**
+     * Constructor.
+     * <p>
+     * With {@code hugePages}, blocks of at least the huge page size (usually 2 MiB) are mapped with huge pages on
+     * Linux: reserved huge pages ({@code MAP_HUGETLB}) if the administrator has configured them, otherwise
+     * transparent huge pages ({@code madvise(MADV_HUGEPAGE)}). Argon2 accesses its memory randomly, so with huge
+     * pages there are far less TLB misses. If huge pages aren't available, normal pages are used, see
+     * {@link #isHugePagesUsed()}.
+     *
+     * @param maxPooledBytes Maximum number of bytes which are kept in the pool. Memory which is in use by libargon2
+     *                       doesn't count.
+     * @param maxIdleTime    Blocks which haven't been used for this time are freed.
+     * @param unit           Unit of {@code maxIdleTime}.
+     * @param hugePages      Whether to map the blocks with huge pages.
+     */
+    public Argon2MemoryPool(long maxPooledBytes, long maxIdleTime, TimeUnit unit, boolean hugePages) {
+        if (maxPooledBytes < 0) throw new IllegalArgumentException("maxPooledBytes must not be negative");
+        if (maxIdleTime < 0) throw new IllegalArgumentException("maxIdleTime must not be negative");
+
+        this.maxPooledBytes = maxPooledBytes;
+        this.maxIdleNanos = unit.toNanos(maxIdleTime);
+        this.hugePages = hugePages;
+    }
+
+    /**
+     * Returns the number of bytes which are kept in the pool.
+     *
+     * @return Number of pooled bytes.
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Returns the maximum number of bytes which are kept in the pool.
+     *
+     * @return Maximum number of pooled bytes.
+     */
+    public long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    /**
+     * Returns whether huge pages have been used. This is the case if the pool has been created with huge pages and
+     * the kernel has backed at least one block with huge pages.
+     *
+     * @return True if huge pages have been used, false otherwise.
+     */
+    public boolean isHugePagesUsed() {
+        return hugePagesUsed;
+    }
+
+    /**
+     * Frees the blocks which haven't been used for longer than the idle time.
+     */
+    public synchronized void trim() {
+        trimIdle(System.nanoTime());
+    }
+
+    /**
+     * Frees all pooled blocks. Blocks which are in use are freed when libargon2 returns them.
+     */
+    public synchronized void clear() {
+        while (!pooled.isEmpty()) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Returns the native function which libargon2 calls to allocate memory.
+     *
+     * @return Pointer for {@code allocate_cbk}.
+     */
+    Pointer getAllocateFunction() {
+        return allocateFunction;
+    }
+
+    /**
+     * Returns the native function which libargon2 calls to free memory.
+     *
+     * @return Pointer for {@code free_cbk}.
+     */
+    Pointer getDeallocateFunction() {
+        return deallocateFunction;
+    }
+
+    /**
+     * Hands out a block with at least the given size.
+     *
+     * @param bytes Needed size in bytes.
+     * @return Block, or null if the memory couldn't be allocated.
+     */
+    Block lease(long bytes) {
+        long size = blockSize(bytes);
+
+        Block block = takePooled(size);
+        if (block == null) {
+            block = allocate(size);
+            if (block == null) {
+                // Make room by freeing the pooled blocks and try again
+                clear();
+                block = allocate(size);
+            }
+            if (block == null) {
+                return null;
+            }
+        }
+
+        block.used = bytes;
+        synchronized (this) {
+            leased.put(Pointer.nativeValue(block.pointer), block);
+        }
+        return block;
+    }
+
+    /**
+     * Takes back a block which has been handed out by {@link #lease(long)}.
+     *
+     * @param address Address of the block.
+     */
+    void release(long address) {
+        Block block;
+        synchronized (this) {
+            block = leased.remove(address);
+        }
+        if (block == null) {
+            return;
+        }
+
+        // Wiping 64 MiB takes a while, so it's done without holding the lock
+        block.pointer.clear(block.used);
+        block.releasedAt = System.nanoTime();
+
+        synchronized (this) {
+            trimIdle(block.releasedAt);
+            // Make room by dropping the least recently used blocks
+            while (pooledBytes + block.size > maxPooledBytes && !pooled.isEmpty()) {
+                evictLeastRecentlyUsed();
+            }
+            if (pooledBytes + block.size <= maxPooledBytes) {
+                pooled.addFirst(block);
+                pooledBytes += block.size;
+                return;
+            }
+        }
+        block.free();
+    }
+
+    /**
+     * Returns the size of the block for the given number of bytes: the next power of two.
+     *
+     * @param bytes Number of bytes.
+     * @return Block size.
+     */
+    static long blockSize(long bytes) {
+        if (bytes <= MIN_BLOCK_SIZE) {
+            return MIN_BLOCK_SIZE;
+        }
+        long highest = Long.highestOneBit(bytes);
+        return highest == bytes ? bytes : highest << 1;
+    }
+
+    /**
+     * Allocates a new block and faults in all its pages, so that this doesn't happen while hashing.
+     *
+     * @param size Block size.
+     * @return Block, or null if the memory couldn't be allocated.
+     */
+    private Block allocate(long size) {
+        if (hugePages && HugePages.isApplicable(size)) {
+            HugePages.Mapping mapping = HugePages.map(size);
+            if (mapping != null) {
+                mapping.getPointer().clear(size);
+                boolean backedByHugePages = HugePages.isBackedByHugePages(mapping);
+                if (backedByHugePages) {
+                    hugePagesUsed = true;
+                }
+                return new Block(mapping.getPointer(), size, null, mapping, backedByHugePages);
+            }
+        }
+
+        Memory memory;
+        try {
+            memory = new Memory(size);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+        memory.clear(size);
+        return new Block(memory, size, memory, null, false);
+    }
+
+    private synchronized Block takePooled(long size) {
+        for (Iterator<Block> iterator = pooled.iterator(); iterator.hasNext(); ) {
+            Block block = iterator.next();
+            if (block.size == size) {
+                iterator.remove();
+                pooledBytes -= size;
+                return block;
+            }
+        }
+        return null;
+    }
+
+    private void trimIdle(long now) {
+        while (!pooled.isEmpty() && now - pooled.getLast().releasedAt > maxIdleNanos) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Block block = pooled.removeLast();
+        pooledBytes -= block.size;
+        block.free();
+    }
+
+    /**
+     * Block of native memory, either allocated by JNA or mapped with huge pages.
+     */
+    static final class Block {
+        private final Pointer pointer;
+        private final long size;
+        private final Memory memory;
+        private final HugePages.Mapping mapping;
+        private final boolean hugePages;
+        private long used;
+        private long releasedAt;
+
+        Block(Pointer pointer, long size, Memory memory, HugePages.Mapping mapping, boolean hugePages) {
+            this.pointer = pointer;
+            this.size = size;
+            this.memory = memory;
+            this.mapping = mapping;
+            this.hugePages = hugePages;
+        }
+
+        void free() {
+            if (mapping != null) {
+                HugePages.unmap(mapping);
+            } else {
+                memory.close();
+            }
+        }
+    }
+}
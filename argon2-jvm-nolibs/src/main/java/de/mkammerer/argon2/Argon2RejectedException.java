@@ -0,0 +1,28 @@
+package de.mkammerer.argon2;
+
+/**
+ * Thrown if a hash hasn't been computed because it couldn't be admitted, e.g. because the memory budget of an
+ * {@link Argon2MemoryBudget} stayed used up until the timeout.
+ */
+public class Argon2RejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     *
+     * @param message Message.
+     */
+    public Argon2RejectedException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param message Message.
+     * @param cause   Cause.
+     */
+    public Argon2RejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
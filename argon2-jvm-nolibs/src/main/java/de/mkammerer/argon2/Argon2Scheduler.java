@@ -0,0 +1,242 @@
+package de.mkammerer.argon2;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the hashes of an {@link Argon2Advanced} instance on a fixed number of worker threads, in the order of their
+ * {@link Priority}.
+ * <p>
+ * Logins, registrations and background jobs like bulk rehashing often share a JVM. Without priorities, a background job
+ * which hashes thousands of passwords delays every login behind it. Here, waiting tasks of a higher priority run first.
+ * To keep lower priorities from starving, waiting tasks age: a task is ordered by its submission time plus
+ * {@code priority.ordinal() * agingTime}. With the default aging time of one second, a background task which has
+ * waited for two seconds runs before an interactive task which has just been submitted.
+ * <p>
+ * The passwords are read when the task runs, so don't wipe them before the returned future is done. The worker threads
+ * are daemon threads. This class is thread safe.
+ */
+public final class Argon2Scheduler {
+    /**
+     * Default aging time in milliseconds.
+     */
+    private static final long DEFAULT_AGING_MILLIS = 1000;
+
+    private static final AtomicInteger SCHEDULER_NUMBER = new AtomicInteger();
+
+    private final Argon2Advanced argon2;
+    private final long agingNanos;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Orders tasks with the same key by submission.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructor. Uses one worker thread per available processor and an aging time of one second.
+     *
+     * @param argon2 Instance which computes the hashes.
+     */
+    public Argon2Scheduler(Argon2Advanced argon2) {
+        this(argon2, Runtime.getRuntime().availableProcessors(), DEFAULT_AGING_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param argon2    Instance which computes the hashes.
+     * @param threads   Number of worker threads, e.g. the number of CPUs.
+     * @param agingTime How long a task has to wait to catch up with tasks of the next higher priority.
+     * @param unit      Unit of the aging time.
+     */
+    public Argon2Scheduler(Argon2Advanced argon2, int threads, long agingTime, TimeUnit unit) {
+        if (argon2 == null) throw new IllegalArgumentException("argon2 must not be null");
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        if (agingTime < 0) throw new IllegalArgumentException("agingTime must be >= 0");
+        if (unit == null) throw new IllegalArgumentException("unit must not be null");
+
+        this.argon2 = argon2;
+        this.agingNanos = unit.toNanos(agingTime);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                new DaemonThreadFactory("argon2-scheduler-" + SCHEDULER_NUMBER.incrementAndGet() + "-"));
+    }
+
+    /**
+     * Verifies a password against a hash.
+     *
+     * @param priority Priority.
+     * @param hash     Hash.
+     * @param password Password. Must not be wiped before the future is done.
+     * @return Future with true if the password matches the hash, false otherwise.
+     */
+    public Future<Boolean> verify(Priority priority, final String hash, final char[] password) {
+        return submit(priority, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return argon2.verify(hash, password);
+            }
+        });
+    }
+
+    /**
+     * Verifies the given data against a hash.
+     *
+     * @param priority Priority.
+     * @param hash     Hash.
+     * @param data     Data. Must not be wiped before the future is done.
+     * @return Future with true if the data matches the hash, false otherwise.
+     */
+    public Future<Boolean> verify(Priority priority, final String hash, final byte[] data) {
+        return submit(priority, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return argon2.verify(hash, data);
+            }
+        });
+    }
+
+    /**
+     * Hashes a password.
+     *
+     * @param priority    Priority.
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password to hash. Must not be wiped before the future is done.
+     * @return Future with the hashed password.
+     */
+    public Future<String> hash(Priority priority, final int iterations, final int memory, final int parallelism, final char[] password) {
+        return submit(priority, new Callable<String>() {
+            @Override
+            public String call() {
+                return argon2.hash(iterations, memory, parallelism, password);
+            }
+        });
+    }
+
+    /**
+     * Hashes the given data.
+     *
+     * @param priority    Priority.
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param data        Data to hash. Must not be wiped before the future is done.
+     * @return Future with the hashed data.
+     */
+    public Future<String> hash(Priority priority, final int iterations, final int memory, final int parallelism, final byte[] data) {
+        return submit(priority, new Callable<String>() {
+            @Override
+            public String call() {
+                return argon2.hash(iterations, memory, parallelism, data);
+            }
+        });
+    }
+
+    /**
+     * Derives a key from a password, see {@link Argon2Advanced#pbkdf(int, int, int, byte[], byte[], int)}.
+     *
+     * @param priority    Priority.
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param password    Password. Must not be wiped before the future is done.
+     * @param salt        Salt
+     * @param keyLength   Length of the key in bytes
+     * @return Future with the key.
+     */
+    public Future<byte[]> pbkdf(Priority priority, final int iterations, final int memory, final int parallelism, final byte[] password, final byte[] salt, final int keyLength) {
+        return submit(priority, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return argon2.pbkdf(iterations, memory, parallelism, password, salt, keyLength);
+            }
+        });
+    }
+
+    /**
+     * Runs any task on the worker threads, e.g. a verify followed by a rehash.
+     *
+     * @param priority Priority.
+     * @param task     Task.
+     * @param <T>      Type of the result.
+     * @return Future with the result of the task.
+     */
+    public <T> Future<T> submit(Priority priority, Callable<T> task) {
+        if (priority == null) throw new IllegalArgumentException("priority must not be null");
+        if (task == null) throw new IllegalArgumentException("task must not be null");
+
+        long key = System.nanoTime() + priority.ordinal() * agingNanos;
+        PrioritizedTask<T> prioritized = new PrioritizedTask<T>(task, key, sequence.getAndIncrement());
+        executor.execute(prioritized);
+        return prioritized;
+    }
+
+    /**
+     * Returns the number of tasks which wait for a worker thread.
+     *
+     * @return Number of waiting tasks.
+     */
+    public int getQueueLength() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops the worker threads after the submitted tasks have run. Tasks which are submitted afterwards are rejected.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Priority of a task. Tasks of the first priority run first.
+     */
+    public enum Priority {
+        /**
+         * A user waits for the result, e.g. a login.
+         */
+        INTERACTIVE,
+        /**
+         * A user waits for the result, but less often and more patiently, e.g. a registration or password change.
+         */
+        REGISTRATION,
+        /**
+         * Nobody waits for the result, e.g. bulk rehashing, exports or key derivation for background jobs.
+         */
+        BACKGROUND
+    }
+
+    /**
+     * Task which is ordered by its key, and by submission if the keys are equal.
+     *
+     * @param <T> Type of the result.
+     */
+    private static final class PrioritizedTask<T> extends FutureTask<T> implements Comparable<PrioritizedTask<?>> {
+        private final long key;
+        private final long sequence;
+
+        PrioritizedTask(Callable<T> callable, long key, long sequence) {
+            super(callable);
+            this.key = key;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask<?> other) {
+            // Subtract, as System.nanoTime() may overflow
+            long diff = key - other.key;
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package de.mkammerer.argon2;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical verifications which run at the same time.
+ * <p>
+ * Credential stuffing and client retries often verify the same password against the same hash many times within the
+ * duration of one hash. If a {@code verify} call finds an identical call in flight, it doesn't compute the hash
+ * again but waits for the result of the running call. Calls are identical if the encoded hash and the HMAC-SHA256 of the
+ * encoded password are the same. Only the MAC is kept while the call runs, never the password. Its key is random and
+ * never leaves the instance, so a MAC read from the heap can't be used to test passwords quickly. Results aren't cached:
+ * once the computation has finished, the next call computes the hash again.
+ * <p>
+ * {@code verifyAll} verifies every password with {@code verify}, so it is coalesced as well. All other methods go
+ * straight to the wrapped instance. This class is thread safe.
+ */
+public final class Argon2SingleFlight extends Argon2Wrapper {
+    private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    private final SecretKeySpec macKey;
+
+    private final ConcurrentMap<Key, FutureTask<Boolean>> inFlight = new ConcurrentHashMap<Key, FutureTask<Boolean>>();
+
+    /**
+     * Number of calls which got the result of another call.
+     */
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param argon2 Instance which computes the hashes.
+     */
+    public Argon2SingleFlight(Argon2Advanced argon2) {
+        super(argon2);
+        this.macKey = HmacSha256.randomKey();
+    }
+
+    /**
+     * Returns the number of verifications which didn't compute the hash, but got the result of an identical call.
+     *
+     * @return Number of coalesced verifications.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Returns the number of distinct verifications which are computed right now.
+     *
+     * @return Number of verifications in flight.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    @Override
+    void enter(int iterations, int memory) {
+        // Nothing to do, hashes run right away
+    }
+
+    @Override
+    void exit(int iterations, int memory, long nanos) {
+        // Nothing to do
+    }
+
+    @Override
+    public boolean verify(String hash, String password) {
+        return verify(hash, password, DEFAULT_CHARSET);
+    }
+
+    @Override
+    public boolean verify(String hash, String password, Charset charset) {
+        byte[] pwd = password.getBytes(charset);
+        try {
+            return verify(hash, pwd);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public boolean verify(String hash, char[] password) {
+        return verify(hash, password, DEFAULT_CHARSET);
+    }
+
+    @Override
+    public boolean verify(String hash, char[] password, Charset charset) {
+        byte[] pwd = AbstractArgon2.toByteArray(password, charset);
+        try {
+            return verify(hash, pwd);
+        } finally {
+            wipeArray(pwd);
+        }
+    }
+
+    @Override
+    public boolean verify(final String hash, final byte[] data) {
+        if (parse(hash) == null) {
+            // Invalid hashes return quickly
+            return getDelegate().verify(hash, data);
+        }
+
+        Key key = new Key(hash, mac(data));
+        FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return getDelegate().verify(hash, data);
+            }
+        });
+
+        FutureTask<Boolean> running = inFlight.putIfAbsent(key, task);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return Futures.awaitUninterruptibly(running);
+        }
+
+        try {
+            task.run();
+        } finally {
+            inFlight.remove(key, task);
+        }
+        return Futures.awaitUninterruptibly(task);
+    }
+
+    private byte[] mac(byte[] data) {
+        return HmacSha256.create(macKey).doFinal(data);
+    }
+
+    /**
+     * Identifies a verification by the encoded hash and the MAC of the password.
+     */
+    private static final class Key {
+        private final String hash;
+        private final byte[] mac;
+        private final int hashCode;
+
+        Key(String hash, byte[] mac) {
+            this.hash = hash;
+            this.mac = mac;
+            this.hashCode = 31 * hash.hashCode() + Arrays.hashCode(mac);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash.equals(other.hash) && MessageDigest.isEqual(mac, other.mac);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package de.mkammerer.argon2;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies high-entropy API tokens against their Argon2 hashes and remembers successful verifications for a short time.
+ * <p>
+ * Machine clients send the same token with every request, and verifying it costs a full Argon2 run each time. This
+ * class computes an HMAC-SHA256 of the encoded hash and the token with a random key, which never leaves the instance.
+ * After a successful verification, the MAC is kept in an off-heap table until the time to live has passed. As long as
+ * it is there, a verification costs one MAC instead of one Argon2 run. Failed verifications aren't remembered.
+ * <p>
+ * A cache like this would make brute forcing a low-entropy password cheap once its MAC key leaks, so this class only
+ * takes tokens with at least {@link #MIN_TOKEN_LENGTH} bytes and has no methods for passwords as {@link String}.
+ * Never use it for user passwords.
+ * <p>
+ * The table holds at most {@code maxEntries} MACs. It is split into buckets of 4 entries, and a new entry replaces the
+ * one which expires first in its bucket. This class is thread safe.
+ */
+public final class Argon2TokenVerifier {
+    /**
+     * Minimum length of a token in bytes, e.g. 16 random bytes or a 22 character base64 string.
+     */
+    public static final int MIN_TOKEN_LENGTH = 16;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAC_LENGTH = HmacSha256.LENGTH;
+    private static final int WAYS = 4;
+
+    /**
+     * MAC followed by the expiry time from {@link System#nanoTime()}. An expiry time of 0 marks an empty entry.
+     */
+    private static final int ENTRY_SIZE = MAC_LENGTH + 8;
+
+    private static final int LOCK_COUNT = 64;
+
+    private final Argon2 argon2;
+    private final SecretKeySpec key;
+    private final long ttlNanos;
+    private final int ways;
+    private final int buckets;
+    private final ByteBuffer table;
+    private final Object[] locks;
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param argon2     Instance which verifies the tokens which aren't in the table.
+     * @param maxEntries Maximum number of remembered verifications. Every entry takes 40 bytes off-heap.
+     * @param ttl        Time for which a successful verification is remembered.
+     * @param unit       Unit of the time to live.
+     */
+    public Argon2TokenVerifier(Argon2 argon2, int maxEntries, long ttl, TimeUnit unit) {
+        if (argon2 == null) throw new IllegalArgumentException("argon2 must not be null");
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be >= 1");
+        if (maxEntries > Integer.MAX_VALUE / ENTRY_SIZE) throw new IllegalArgumentException("maxEntries must be <= " + Integer.MAX_VALUE / ENTRY_SIZE);
+        if (ttl <= 0) throw new IllegalArgumentException("ttl must be > 0");
+
+        this.argon2 = argon2;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.ways = Math.min(WAYS, maxEntries);
+        this.buckets = maxEntries / ways;
+        this.table = ByteBuffer.allocateDirect(buckets * ways * ENTRY_SIZE);
+
+        this.key = HmacSha256.randomKey();
+
+        this.locks = new Object[Math.min(LOCK_COUNT, buckets)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Verifies a token against a hash.
+     *
+     * @param hash  Hash.
+     * @param token Token, at least {@link #MIN_TOKEN_LENGTH} bytes.
+     * @return True if the token matches the hash, false otherwise.
+     */
+    public boolean verify(String hash, byte[] token) {
+        if (token.length < MIN_TOKEN_LENGTH) {
+            throw new IllegalArgumentException("token must be at least " + MIN_TOKEN_LENGTH + " bytes, passwords must not be cached");
+        }
+
+        byte[] mac = mac(hash, token);
+        int bucket = bucket(mac);
+        synchronized (locks[bucket % locks.length]) {
+            if (contains(bucket, mac, System.nanoTime())) {
+                hits.incrementAndGet();
+                return true;
+            }
+        }
+
+        if (!argon2.verify(hash, token)) {
+            return false;
+        }
+
+        synchronized (locks[bucket % locks.length]) {
+            put(bucket, mac, System.nanoTime());
+        }
+        return true;
+    }
+
+    /**
+     * Verifies a token against a hash.
+     *
+     * @param hash  Hash.
+     * @param token Token, encoded as UTF-8. Must have at least {@link #MIN_TOKEN_LENGTH} bytes.
+     * @return True if the token matches the hash, false otherwise.
+     */
+    public boolean verify(String hash, char[] token) {
+        byte[] bytes = AbstractArgon2.toByteArray(token, UTF_8);
+        try {
+            return verify(hash, bytes);
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    /**
+     * Forgets all remembered verifications, e.g. after tokens have been revoked.
+     */
+    public void invalidateAll() {
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            synchronized (locks[bucket % locks.length]) {
+                for (int way = 0; way < ways; way++) {
+                    int offset = offset(bucket, way);
+                    for (int i = 0; i < ENTRY_SIZE; i++) {
+                        table.put(offset + i, (byte) 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of verifications which have been answered from the table.
+     *
+     * @return Number of hits.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    private boolean contains(int bucket, byte[] mac, long now) {
+        for (int way = 0; way < ways; way++) {
+            int offset = offset(bucket, way);
+            long expiry = table.getLong(offset + MAC_LENGTH);
+            if (expiry != 0 && expiry - now > 0 && macEquals(offset, mac)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void put(int bucket, byte[] mac, long now) {
+        long expiry = now + ttlNanos;
+        if (expiry == 0) {
+            expiry = 1;
+        }
+
+        // Replace the same MAC, an empty entry or the entry which expires first
+        int victim = -1;
+        long victimRemaining = Long.MAX_VALUE;
+        for (int way = 0; way < ways; way++) {
+            int offset = offset(bucket, way);
+            long current = table.getLong(offset + MAC_LENGTH);
+            if (current == 0 || macEquals(offset, mac)) {
+                victim = offset;
+                break;
+            }
+            long remaining = current - now;
+            if (victim == -1 || remaining < victimRemaining) {
+                victim = offset;
+                victimRemaining = remaining;
+            }
+        }
+
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            table.put(victim + i, mac[i]);
+        }
+        table.putLong(victim + MAC_LENGTH, expiry);
+    }
+
+    private boolean macEquals(int offset, byte[] mac) {
+        int difference = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            difference |= table.get(offset + i) ^ mac[i];
+        }
+        return difference == 0;
+    }
+
+    private int bucket(byte[] mac) {
+        // The MAC is uniformly distributed, its first bytes make a good index
+        int h = ((mac[0] & 0xff) << 24) | ((mac[1] & 0xff) << 16) | ((mac[2] & 0xff) << 8) | (mac[3] & 0xff);
+        return (h & 0x7fffffff) % buckets;
+    }
+
+    private int offset(int bucket, int way) {
+        return (bucket * ways + way) * ENTRY_SIZE;
+    }
+
+    private byte[] mac(String hash, byte[] token) {
+        Mac mac = HmacSha256.create(key);
+        mac.update(hash.getBytes(UTF_8));
+        // Separates the hash from the token, an encoded hash never contains a 0 byte
+        mac.update((byte) 0);
+        return mac.doFinal(token);
+    }
+}
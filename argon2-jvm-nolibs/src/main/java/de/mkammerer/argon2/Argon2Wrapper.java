@@ -0,0 +1,526 @@
+package de.mkammerer.argon2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Base class for wrappers which control when the calls to another {@link Argon2Advanced} instance run.
+ * <p>
+ * Every method which computes a hash calls {@link #enter(int, int)} with its costs, then the wrapped instance, then
+ * {@link #exit(int, int, long)}. For verify, the costs are read from the encoded hash. If it can't be read, the hash is
+ * invalid and the wrapped instance is called directly, as it returns quickly. Salts, arrays and
+ * {@link #needsRehash(String, int, int, int)} go straight to the wrapped instance.
+ */
+abstract class Argon2Wrapper implements Argon2Advanced {
+    private final Argon2Advanced delegate;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate Wrapped instance.
+     */
+    Argon2Wrapper(Argon2Advanced delegate) {
+        if (delegate == null) throw new IllegalArgumentException("delegate must not be null");
+        this.delegate = delegate;
+    }
+
+    /**
+     * Is called before the wrapped instance computes a hash. If this throws, the hash isn't computed and
+     * {@link #exit(int, int, long)} isn't called.
+     *
+     * @param iterations Number of iterations.
+     * @param memory     Memory cost in KiB.
+     */
+    abstract void enter(int iterations, int memory);
+
+    /**
+     * Is called after the wrapped instance has computed a hash, also if it has thrown.
+     *
+     * @param iterations Number of iterations, the same as for {@link #enter(int, int)}.
+     * @param memory     Memory cost in KiB, the same as for {@link #enter(int, int)}.
+     * @param nanos      Time the wrapped instance took in nanoseconds, or -1 if it has thrown.
+     */
+    abstract void exit(int iterations, int memory, long nanos);
+
+    /**
+     * Returns the wrapped instance.
+     *
+     * @return Wrapped instance.
+     */
+    Argon2Advanced getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Runs a call to the wrapped instance between {@link #enter(int, int)} and {@link #exit(int, int, long)}.
+     *
+     * @param iterations Number of iterations.
+     * @param memory     Memory cost in KiB.
+     * @param call       Call to the wrapped instance.
+     * @param <T>        Type of the result.
+     * @param <E>        Checked exception of the call.
+     * @return Result of the call.
+     * @throws E If the call throws.
+     */
+    final <T, E extends Exception> T call(int iterations, int memory, Call<T, E> call) throws E {
+        enter(iterations, memory);
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            T result = call.call();
+            completed = true;
+            return result;
+        } finally {
+            exit(iterations, memory, completed ? System.nanoTime() - start : -1);
+        }
+    }
+
+    /**
+     * Runs a verification against the given hash like {@link #call(int, int, Call)}, with the costs of the hash. If the
+     * hash can't be parsed, the call runs directly.
+     *
+     * @param hash Encoded hash.
+     * @param call Call to the wrapped instance.
+     * @param <T>  Type of the result.
+     * @param <E>  Checked exception of the call.
+     * @return Result of the call.
+     * @throws E If the call throws.
+     */
+    final <T, E extends Exception> T verifyCall(String hash, Call<T, E> call) throws E {
+        EncodedHash encoded = parse(hash);
+        if (encoded == null) {
+            return call.call();
+        }
+        return call(encoded.getIterations(), encoded.getMemory(), call);
+    }
+
+    /**
+     * Parses an encoded hash.
+     *
+     * @param hash Encoded hash, may be null.
+     * @return Parsed hash, or null if the hash is invalid.
+     */
+    static EncodedHash parse(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        try {
+            return EncodedHash.parse(hash);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String hash(final int iterations, final int memory, final int parallelism, final String password) {
+        return call(iterations, memory, new Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return delegate.hash(iterations, memory, parallelism, password);
+            }
+        });
+    }
+
+    @Override
+    public String hash(final int iterations, final int memory, final int parallelism, final String password, final Charset charset) {
+        return call(iterations, memory, new Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return delegate.hash(iterations, memory, parallelism, password, charset);
+            }
+        });
+    }
+
+    @Override
+    public String hash(final int iterations, final int memory, final int parallelism, final char[] password) {
+        return call(iterations, memory, new Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return delegate.hash(iterations, memory, parallelism, password);
+            }
+        });
+    }
+
+    @Override
+    public String hash(final int iterations, final int memory, final int parallelism, final char[] password, final Charset charset) {
+        return call(iterations, memory, new Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return delegate.hash(iterations, memory, parallelism, password, charset);
+            }
+        });
+    }
+
+    @Override
+    public String hash(final int iterations, final int memory, final int parallelism, final byte[] data) {
+        return call(iterations, memory, new Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return delegate.hash(iterations, memory, parallelism, data);
+            }
+        });
+    }
+
+    @Override
+    public String hash(final int iterations, final int memory, final int parallelism, final char[] password, final Charset charset, final byte[] salt) {
+        return call(iterations, memory, new Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return delegate.hash(iterations, memory, parallelism, password, charset, salt);
+            }
+        });
+    }
+
+    @Override
+    public HashResult hashAdvanced(final int iterations, final int memory, final int parallelism, final byte[] password, final byte[] salt, final int hashLength, final Argon2Version version) {
+        return call(iterations, memory, new Call<HashResult, RuntimeException>() {
+            @Override
+            public HashResult call() {
+                return delegate.hashAdvanced(iterations, memory, parallelism, password, salt, hashLength, version);
+            }
+        });
+    }
+
+    @Override
+    public byte[] rawHash(final int iterations, final int memory, final int parallelism, final String password, final byte[] salt) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.rawHash(iterations, memory, parallelism, password, salt);
+            }
+        });
+    }
+
+    @Override
+    public byte[] rawHash(final int iterations, final int memory, final int parallelism, final String password, final Charset charset, final byte[] salt) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.rawHash(iterations, memory, parallelism, password, charset, salt);
+            }
+        });
+    }
+
+    @Override
+    public byte[] rawHash(final int iterations, final int memory, final int parallelism, final char[] password, final byte[] salt) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.rawHash(iterations, memory, parallelism, password, salt);
+            }
+        });
+    }
+
+    @Override
+    public byte[] rawHash(final int iterations, final int memory, final int parallelism, final byte[] data, final byte[] salt) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.rawHash(iterations, memory, parallelism, data, salt);
+            }
+        });
+    }
+
+    @Override
+    public byte[] rawHash(final int iterations, final int memory, final int parallelism, final char[] password, final Charset charset, final byte[] salt) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.rawHash(iterations, memory, parallelism, password, charset, salt);
+            }
+        });
+    }
+
+    @Override
+    public byte[] pbkdf(final int iterations, final int memory, final int parallelism, final char[] password, final Charset charset, final byte[] salt, final int keyLength) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.pbkdf(iterations, memory, parallelism, password, charset, salt, keyLength);
+            }
+        });
+    }
+
+    @Override
+    public byte[] pbkdf(final int iterations, final int memory, final int parallelism, final byte[] password, final byte[] salt, final int keyLength) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.pbkdf(iterations, memory, parallelism, password, salt, keyLength);
+            }
+        });
+    }
+
+    @Override
+    public String hash(final int iterations, final int memory, final int parallelism, final FileChannel password) throws IOException {
+        return call(iterations, memory, new Call<String, IOException>() {
+            @Override
+            public String call() throws IOException {
+                return delegate.hash(iterations, memory, parallelism, password);
+            }
+        });
+    }
+
+    @Override
+    public byte[] pbkdf(final int iterations, final int memory, final int parallelism, final FileChannel password, final byte[] salt, final int keyLength) throws IOException {
+        return call(iterations, memory, new Call<byte[], IOException>() {
+            @Override
+            public byte[] call() throws IOException {
+                return delegate.pbkdf(iterations, memory, parallelism, password, salt, keyLength);
+            }
+        });
+    }
+
+    @Override
+    public byte[][] deriveKeys(final int iterations, final int memory, final int parallelism, final char[] password, final Charset charset, final byte[] salt, final String[] labels, final int keyLength) {
+        return call(iterations, memory, new Call<byte[][], RuntimeException>() {
+            @Override
+            public byte[][] call() {
+                return delegate.deriveKeys(iterations, memory, parallelism, password, charset, salt, labels, keyLength);
+            }
+        });
+    }
+
+    @Override
+    public byte[][] deriveKeys(final int iterations, final int memory, final int parallelism, final byte[] password, final byte[] salt, final String[] labels, final int keyLength) {
+        return call(iterations, memory, new Call<byte[][], RuntimeException>() {
+            @Override
+            public byte[][] call() {
+                return delegate.deriveKeys(iterations, memory, parallelism, password, salt, labels, keyLength);
+            }
+        });
+    }
+
+    @Override
+    public byte[] rawHashAdvanced(final int iterations, final int memory, final int parallelism, final char[] password, final Charset charset, final byte[] salt, final byte[] secret, final byte[] associatedData) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.rawHashAdvanced(iterations, memory, parallelism, password, charset, salt, secret, associatedData);
+            }
+        });
+    }
+
+    @Override
+    public byte[] rawHashAdvanced(final int iterations, final int memory, final int parallelism, final byte[] password, final byte[] salt, final byte[] secret, final byte[] associatedData, final int hashLength, final Argon2Version version) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.rawHashAdvanced(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version);
+            }
+        });
+    }
+
+    @Override
+    public boolean verifyAdvanced(final int iterations, final int memory, final int parallelism, final char[] password, final Charset charset, final byte[] salt, final byte[] secret, final byte[] associatedData, final byte[] rawHash) {
+        return call(iterations, memory, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verifyAdvanced(iterations, memory, parallelism, password, charset, salt, secret, associatedData, rawHash);
+            }
+        });
+    }
+
+    @Override
+    public boolean verifyAdvanced(final int iterations, final int memory, final int parallelism, final byte[] password, final byte[] salt, final byte[] secret, final byte[] associatedData, final int hashLength, final Argon2Version version, final byte[] rawHash) {
+        return call(iterations, memory, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verifyAdvanced(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version, rawHash);
+            }
+        });
+    }
+
+    @Override
+    public String hash(final int iterations, final int memory, final int parallelism, final SecretBuffer password) {
+        return call(iterations, memory, new Call<String, RuntimeException>() {
+            @Override
+            public String call() {
+                return delegate.hash(iterations, memory, parallelism, password);
+            }
+        });
+    }
+
+    @Override
+    public byte[] rawHashAdvanced(final int iterations, final int memory, final int parallelism, final SecretBuffer password, final byte[] salt, final byte[] secret, final byte[] associatedData, final int hashLength, final Argon2Version version) {
+        return call(iterations, memory, new Call<byte[], RuntimeException>() {
+            @Override
+            public byte[] call() {
+                return delegate.rawHashAdvanced(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version);
+            }
+        });
+    }
+
+    @Override
+    public void rawHashAdvanced(final int iterations, final int memory, final int parallelism, final ByteBuffer password, final ByteBuffer salt, final ByteBuffer secret, final ByteBuffer associatedData, final ByteBuffer hash, final Argon2Version version) {
+        call(iterations, memory, new Call<Void, RuntimeException>() {
+            @Override
+            public Void call() {
+                delegate.rawHashAdvanced(iterations, memory, parallelism, password, salt, secret, associatedData, hash, version);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public boolean verifyAdvanced(final int iterations, final int memory, final int parallelism, final ByteBuffer password, final ByteBuffer salt, final ByteBuffer secret, final ByteBuffer associatedData, final ByteBuffer rawHash, final Argon2Version version) {
+        return call(iterations, memory, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verifyAdvanced(iterations, memory, parallelism, password, salt, secret, associatedData, rawHash, version);
+            }
+        });
+    }
+
+    @Override
+    public String[] hashAll(int iterations, int memory, int parallelism, List<char[]> passwords) {
+        // Every password goes through hash() of this wrapper
+        return ParallelBatch.hashAll(this, iterations, memory, parallelism, passwords);
+    }
+
+    @Override
+    public boolean[] verifyAll(List<String> hashes, List<char[]> passwords) {
+        // Every password goes through verify() of this wrapper
+        return ParallelBatch.verifyAll(this, hashes, passwords);
+    }
+
+    @Override
+    public boolean verify(final String hash, final String password) {
+        return verifyCall(hash, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verify(hash, password);
+            }
+        });
+    }
+
+    @Override
+    public boolean verify(final String hash, final String password, final Charset charset) {
+        return verifyCall(hash, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verify(hash, password, charset);
+            }
+        });
+    }
+
+    @Override
+    public boolean verify(final String hash, final char[] password) {
+        return verifyCall(hash, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verify(hash, password);
+            }
+        });
+    }
+
+    @Override
+    public boolean verify(final String hash, final char[] password, final Charset charset) {
+        return verifyCall(hash, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verify(hash, password, charset);
+            }
+        });
+    }
+
+    @Override
+    public boolean verify(final String hash, final SecretBuffer password) {
+        return verifyCall(hash, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verify(hash, password);
+            }
+        });
+    }
+
+    @Override
+    public boolean verify(final String hash, final ByteBuffer password) {
+        return verifyCall(hash, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verify(hash, password);
+            }
+        });
+    }
+
+    @Override
+    public boolean verify(final String hash, final byte[] data) {
+        return verifyCall(hash, new Call<Boolean, RuntimeException>() {
+            @Override
+            public Boolean call() {
+                return delegate.verify(hash, data);
+            }
+        });
+    }
+
+    @Override
+    public boolean needsRehash(String hash, int iterations, int memory, int parallelism) {
+        return delegate.needsRehash(hash, iterations, memory, parallelism);
+    }
+
+    @Override
+    public RehashResult verifyAndRehash(String hash, char[] password, int iterations, int memory, int parallelism) {
+        return verifyAndRehash(hash, password, iterations, memory, parallelism, null);
+    }
+
+    @Override
+    public RehashResult verifyAndRehash(final String hash, final char[] password, final int iterations, final int memory, final int parallelism, final Executor executor) {
+        EncodedHash encoded = parse(hash);
+        if (encoded == null) {
+            return delegate.verifyAndRehash(hash, password, iterations, memory, parallelism, executor);
+        }
+        int hashMemory = encoded.getMemory();
+        int hashIterations = encoded.getIterations();
+
+        // A rehash because of the type isn't seen here, it costs the same as a rehash because of the parameters
+        int totalIterations = hashIterations;
+        int totalMemory = hashMemory;
+        if (delegate.needsRehash(hash, iterations, memory, parallelism)) {
+            totalIterations += iterations;
+            // With an executor, both hashes run at the same time
+            totalMemory = executor != null ? hashMemory + memory : Math.max(hashMemory, memory);
+        }
+
+        return call(totalIterations, totalMemory, new Call<RehashResult, RuntimeException>() {
+            @Override
+            public RehashResult call() {
+                return delegate.verifyAndRehash(hash, password, iterations, memory, parallelism, executor);
+            }
+        });
+    }
+
+    @Override
+    public void wipeArray(char[] array) {
+        delegate.wipeArray(array);
+    }
+
+    @Override
+    public void wipeArray(byte[] array) {
+        delegate.wipeArray(array);
+    }
+
+    @Override
+    public byte[] generateSalt() {
+        return delegate.generateSalt();
+    }
+
+    @Override
+    public byte[] generateSalt(int lengthInBytes) {
+        return delegate.generateSalt(lengthInBytes);
+    }
+
+    /**
+     * Call to the wrapped instance.
+     *
+     * @param <T> Type of the result.
+     * @param <E> Checked exception, {@link RuntimeException} if there is none.
+     */
+    interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+}
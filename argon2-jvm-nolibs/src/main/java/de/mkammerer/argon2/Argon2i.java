@@ -21,6 +21,17 @@ class Argon2i extends BaseArgon2 {
         super(defaultSaltLength, defaultHashLength);
     }
 
+    /**
+     * Constructor.
+     *
+     * @param defaultSaltLength Default salt length in bytes. Can be overridden by some methods.
+     * @param defaultHashLength Default hash length in bytes. Can be overridden by some methods.
+     * @param memoryPool        Pool for the work memory (nullable).
+     */
+    Argon2i(int defaultSaltLength, int defaultHashLength, Argon2MemoryPool memoryPool) {
+        super(defaultSaltLength, defaultHashLength, memoryPool);
+    }
+
     @Override
     public final Argon2Factory.Argon2Types getType() {
         return Argon2Factory.Argon2Types.ARGON2i;
@@ -8,18 +8,22 @@ import de.mkammerer.argon2.jna.Argon2_context;
 import de.mkammerer.argon2.jna.JnaUint32;
 import de.mkammerer.argon2.jna.Size_t;
 
+import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.Charset;
-import java.security.SecureRandom;
-import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Argon2 base class.
+ * Argon2 base class for the implementations which call the native library.
+ * <p>
+ * On Java 22 and later, the library is called through the foreign function and memory API if native access is
+ * enabled, see {@link Argon2Binding}. Otherwise, the library is called through JNA.
+ * <p>
+ * Every public entry point hands the call to {@link VirtualThreadOffload} if it's called from a virtual thread and the
+ * offloading is enabled.
  */
-abstract class BaseArgon2 implements Argon2, Argon2Advanced {
+abstract class BaseArgon2 extends AbstractArgon2 {
 
     /**
      * ASCII encoding.
@@ -27,22 +31,24 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
     private static final String ASCII = "ASCII";
 
     /**
-     * Default charset.
+     * Makes libargon2 wipe the password and the secret right after hashing them.
      */
-    private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+    private static final int CLEAR_FLAGS = Argon2Library.ARGON2_FLAG_CLEAR_PASSWORD | Argon2Library.ARGON2_FLAG_CLEAR_SECRET;
 
     /**
-     * The pattern that a hash must match.
+     * Name of the binding through the foreign function and memory API, which is only in the multi-release JAR for Java 22.
      */
-    private static final Pattern HASH_PATTERN = Pattern.compile("^\\$argon2[id]{1,2}\\$v=\\d+\\$m=(\\d+),t=(\\d+),p=(\\d+)\\$.+$");
+    private static final String FOREIGN_BINDING_CLASS = "de.mkammerer.argon2.ForeignArgon2Binding";
 
     /**
-     * Secure RNG for salt.
+     * Binding through the foreign function and memory API, null if JNA is used.
      */
-    private final SecureRandom secureRandom = new SecureRandom();
+    private static final Argon2Binding FOREIGN_BINDING = loadForeignBinding();
 
-    private final int defaultSaltLength;
-    private final int defaultHashLength;
+    /**
+     * Pool for the work memory of libargon2. Null if libargon2 allocates the memory itself.
+     */
+    private final Argon2MemoryPool memoryPool;
 
     /**
      * Constructor.
@@ -51,172 +57,124 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
      * @param defaultHashLength Default hash length in bytes. Can be overridden by some methods.
      */
     BaseArgon2(int defaultSaltLength, int defaultHashLength) {
-        this.defaultSaltLength = defaultSaltLength;
-        this.defaultHashLength = defaultHashLength;
-    }
-
-    @Override
-    public String hash(int iterations, int memory, int parallelism, char[] password) {
-        return hash(iterations, memory, parallelism, password, DEFAULT_CHARSET);
-    }
-
-    @Override
-    public String hash(int iterations, int memory, int parallelism, byte[] data) {
-        return hashBytes(iterations, memory, parallelism, data);
-    }
-
-    @Override
-    public boolean verify(String hash, byte[] data) {
-        return verifyBytes(hash, data);
-    }
-
-    @Override
-    public String hash(int iterations, int memory, int parallelism, char[] password, Charset charset) {
-        byte[] pwd = toByteArray(password, charset);
-        try {
-            return hashBytes(iterations, memory, parallelism, pwd);
-        } finally {
-            wipeArray(pwd);
-        }
+        this(defaultSaltLength, defaultHashLength, null);
     }
 
-    @Override
-    public String hash(int iterations, int memory, int parallelism, String password, Charset charset) {
-        byte[] pwd = password.getBytes(charset);
-        try {
-            return hashBytes(iterations, memory, parallelism, pwd);
-        } finally {
-            wipeArray(pwd);
-        }
+    /**
+     * Constructor.
+     * <p>
+     * With a memory pool or an enabled {@link NativeThreadBudget}, all functions go through {@code argon2_ctx} and
+     * {@code argon2_verify_ctx}, as only these accept the memory callbacks and a thread count which differs from the
+     * number of lanes. The encoded hashes are built and parsed in Java.
+     *
+     * @param defaultSaltLength Default salt length in bytes. Can be overridden by some methods.
+     * @param defaultHashLength Default hash length in bytes. Can be overridden by some methods.
+     * @param memoryPool        Pool for the work memory (nullable).
+     */
+    BaseArgon2(int defaultSaltLength, int defaultHashLength, Argon2MemoryPool memoryPool) {
+        super(defaultSaltLength, defaultHashLength);
+        this.memoryPool = memoryPool;
     }
 
     @Override
-    public String hash(int iterations, int memory, int parallelism, String password) {
-        return hash(iterations, memory, parallelism, password, DEFAULT_CHARSET);
+    Argon2Advanced withType(Argon2Factory.Argon2Types type) {
+        return Argon2Factory.createInternal(type, getDefaultSaltLength(), getDefaultHashLength(), memoryPool);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Without a memory pool, the passwords are hashed by an instance with a pool for this call, so that every thread
+     * reuses its work memory from one password of a chunk to the next.
+     */
     @Override
-    public String hash(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt) {
-        byte[] pwd = toByteArray(password, charset);
-        try {
-            return hashBytes(iterations, memory, parallelism, pwd, salt);
-        } finally {
-            wipeArray(pwd);
+    public String[] hashAll(int iterations, int memory, int parallelism, List<char[]> passwords) {
+        if (memoryPool != null) {
+            return super.hashAll(iterations, memory, parallelism, passwords);
         }
-    }
 
-    @Override
-    public byte[] rawHash(int iterations, int memory, int parallelism, char[] password, byte[] salt) {
-        return rawHash(iterations, memory, parallelism, password, DEFAULT_CHARSET, salt);
-    }
-
-    @Override
-    public byte[] rawHash(int iterations, int memory, int parallelism, byte[] data, byte[] salt) {
-        return rawHashBytes(iterations, memory, parallelism, data, salt, defaultHashLength);
-    }
-
-    @Override
-    public byte[] rawHash(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt) {
-        byte[] pwd = toByteArray(password, charset);
+        Argon2MemoryPool pool = createBatchPool(memory);
         try {
-            return rawHashBytes(iterations, memory, parallelism, pwd, salt, defaultHashLength);
+            return ParallelBatch.hashAll(withPool(pool), iterations, memory, parallelism, passwords);
         } finally {
-            wipeArray(pwd);
+            pool.clear();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Without a memory pool, the passwords are verified by an instance with a pool for this call, so that every thread
+     * reuses its work memory from one password of a chunk to the next.
+     */
     @Override
-    public byte[] rawHash(int iterations, int memory, int parallelism, String password, Charset charset, byte[] salt) {
-        byte[] pwd = password.getBytes(charset);
-        try {
-            return rawHashBytes(iterations, memory, parallelism, pwd, salt, defaultHashLength);
-        } finally {
-            wipeArray(pwd);
+    public boolean[] verifyAll(List<String> hashes, List<char[]> passwords) {
+        if (memoryPool != null) {
+            return super.verifyAll(hashes, passwords);
         }
-    }
-
-    @Override
-    public byte[] rawHash(int iterations, int memory, int parallelism, String password, byte[] salt) {
-        return rawHash(iterations, memory, parallelism, password, DEFAULT_CHARSET, salt);
-    }
-
-    @Override
-    public boolean verify(String hash, String password) {
-        return verify(hash, password, DEFAULT_CHARSET);
-    }
 
-    @Override
-    public boolean verify(String hash, String password, Charset charset) {
-        byte[] pwd = password.getBytes(charset);
-        try {
-            return verifyBytes(hash, pwd);
-        } finally {
-            wipeArray(pwd);
+        int memory = 0;
+        for (String hash : hashes) {
+            try {
+                memory = Math.max(memory, EncodedHash.parse(hash).getMemory());
+            } catch (IllegalArgumentException e) {
+                // Invalid hashes don't need memory
+            }
         }
-    }
 
-    @Override
-    public boolean verify(String hash, char[] password, Charset charset) {
-        byte[] pwd = toByteArray(password, charset);
+        Argon2MemoryPool pool = createBatchPool(memory);
         try {
-            return verifyBytes(hash, pwd);
+            return ParallelBatch.verifyAll(withPool(pool), hashes, passwords);
         } finally {
-            wipeArray(pwd);
+            pool.clear();
         }
     }
 
-    @Override
-    public boolean verify(String hash, char[] password) {
-        return verify(hash, password, DEFAULT_CHARSET);
+    private Argon2Advanced withPool(Argon2MemoryPool pool) {
+        return Argon2Factory.createInternal(getType(), getDefaultSaltLength(), getDefaultHashLength(), pool);
     }
 
     /**
-     * Wipes the data from the given array.
-     * <p>
-     * Use this method to clear confidential data after using it.
+     * Creates a pool which keeps one block for every thread of {@link ParallelBatch} and the calling thread.
      *
-     * @param array the array to wipe
+     * @param memory Largest memory cost in KiB.
+     * @return Pool.
      */
-    @Override
-    public void wipeArray(byte[] array) {
-        Arrays.fill(array, (byte) 0);
+    private static Argon2MemoryPool createBatchPool(int memory) {
+        int threads = Runtime.getRuntime().availableProcessors() + 1;
+        return new Argon2MemoryPool(threads * Argon2MemoryPool.blockSize(memory * 1024L), 1, TimeUnit.MINUTES);
     }
 
     @Override
-    public void wipeArray(char[] array) {
-        Arrays.fill(array, (char) 0);
+    public HashResult hashAdvanced(final int iterations, final int memory, final int parallelism, final byte[] password, final byte[] salt, final int hashLength, final Argon2Version version) {
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<HashResult>() {
+                @Override
+                public HashResult call() {
+                    return hashAdvancedDirectly(iterations, memory, parallelism, password, salt, hashLength, version);
+                }
+            });
+        }
+        return hashAdvancedDirectly(iterations, memory, parallelism, password, salt, hashLength, version);
     }
 
-    @Override
-    public byte[] pbkdf(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, int keyLength) {
-        byte[] pwd = toByteArray(password, charset);
-        try {
-            return pbkdf(iterations, memory, parallelism, pwd, salt, keyLength);
-        } finally {
-            wipeArray(pwd);
+    private HashResult hashAdvancedDirectly(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int hashLength, Argon2Version version) {
+        if (useContext()) {
+            if (hashLength <= 0) throw new IllegalArgumentException("hashLength must be greater than zero");
+            byte[] hash = contextHash(iterations, memory, parallelism, password, salt, null, null, hashLength, version);
+            String encoded = new EncodedHash(getType(), version.getVersion(), memory, iterations, parallelism, salt, hash).encode();
+            return new HashResult(hash, encoded);
         }
-    }
+        if (FOREIGN_BINDING != null) {
+            byte[] hash = new byte[hashLength];
+            byte[] encoded = new byte[FOREIGN_BINDING.encodedLength(getType(), iterations, memory, parallelism, salt.length, hashLength)];
 
-    @Override
-    public byte[] pbkdf(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int keyLength) {
-        return rawHashBytes(iterations, memory, parallelism, password, salt, keyLength);
-    }
+            int result = FOREIGN_BINDING.hash(getType(), version, iterations, memory, parallelism, password, salt, hash, hashLength, encoded);
+            checkResult(result);
 
-    @Override
-    public boolean needsRehash(String hash, int iterations, int memory, int parallelism) {
-        Matcher matcher = HASH_PATTERN.matcher(hash);
-        if (!matcher.matches()) {
-            throw new IllegalArgumentException("Invalid hash '" + hash + "'");
+            return new HashResult(hash, Native.toString(encoded, ASCII));
         }
 
-        int actualMemory = Integer.parseInt(matcher.group(1));
-        int actualIterations = Integer.parseInt(matcher.group(2));
-        int actualParallelism = Integer.parseInt(matcher.group(3));
-        return actualMemory < memory || actualIterations < iterations || actualParallelism < parallelism;
-    }
-
-    @Override
-    public HashResult hashAdvanced(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int hashLength, Argon2Version version) {
         JnaUint32 jnaIterations = new JnaUint32(iterations);
         JnaUint32 jnaMemory = new JnaUint32(memory);
         JnaUint32 jnaParallelism = new JnaUint32(parallelism);
@@ -237,71 +195,68 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
     }
 
     @Override
-    public byte[] rawHashAdvanced(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, byte[] secret, byte[] associatedData) {
-        byte[] pwd = toByteArray(password, charset);
-        return rawHashAdvanced(iterations, memory, parallelism, pwd, salt, secret, associatedData, defaultHashLength, Argon2Version.DEFAULT_VERSION);
+    public byte[] rawHashAdvanced(final int iterations, final int memory, final int parallelism, final byte[] password, final byte[] salt, final byte[] secret, final byte[] associatedData, final int hashLength, final Argon2Version version) {
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return rawHashAdvancedDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version);
+                }
+            });
+        }
+        return rawHashAdvancedDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version);
     }
 
-    @Override
-    public byte[] rawHashAdvanced(int iterations, int memory, int parallelism, byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version) {
+    private byte[] rawHashAdvancedDirectly(int iterations, int memory, int parallelism, byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version) {
         if (hashLength <= 0) throw new IllegalArgumentException("hashLength must be greater than zero");
-        Argon2_context.ByReference context = buildContextReference(iterations, memory, parallelism,
-                hashLength, password, salt, version, secret, associatedData);
+        if (useForeignBinding()) {
+            byte[] hash = new byte[hashLength];
+            int result = FOREIGN_BINDING.ctx(getType(), version, iterations, memory, parallelism, password, salt, secret, associatedData, hash);
+            checkResult(result);
 
-        int result = callLibraryContext(context);
-        wipeMemory(context);
-        checkResult(result);
+            return hash;
+        }
 
-        return context.out.getByteArray(0, hashLength);
+        return contextHash(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version);
     }
 
     @Override
-    public boolean verifyAdvanced(int iterations, int memory, int parallelism, char[] password, Charset charset, byte[] salt, byte[] secret, byte[] associatedData, byte[] rawHash) {
-        byte[] pwd = toByteArray(password, charset);
-        return verifyAdvanced(iterations, memory, parallelism, pwd, salt, secret, associatedData, defaultHashLength, Argon2Version.DEFAULT_VERSION, rawHash);
+    public boolean verifyAdvanced(final int iterations, final int memory, final int parallelism, final byte[] password, final byte[] salt, final byte[] secret, final byte[] associatedData, final int hashLength, final Argon2Version version, final byte[] rawHash) {
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return verifyAdvancedDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version, rawHash);
+                }
+            });
+        }
+        return verifyAdvancedDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version, rawHash);
     }
 
-    @Override
-    public boolean verifyAdvanced(int iterations, int memory, int parallelism, byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version, byte[] rawHash) {
+    private boolean verifyAdvancedDirectly(int iterations, int memory, int parallelism, byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version, byte[] rawHash) {
         if (hashLength <= 0) throw new IllegalArgumentException("hashLength must be greater than zero");
-        Argon2_context.ByReference context = buildContextReference(iterations, memory, parallelism,
-                hashLength, password, salt, version, secret, associatedData);
-
-        int result = callLibraryVerifyContext(context, rawHash);
-        wipeMemory(context);
-
-        return result == Argon2Library.ARGON2_OK;
-    }
-
-    @Override
-    public byte[] generateSalt() {
-        return generateSalt(defaultSaltLength);
-    }
+        if (useForeignBinding()) {
+            if (rawHash.length != hashLength) {
+                return false;
+            }
+            return FOREIGN_BINDING.verifyCtx(getType(), version, iterations, memory, parallelism, password, salt, secret, associatedData, rawHash) == Argon2Library.ARGON2_OK;
+        }
 
-    @Override
-    public byte[] generateSalt(int lengthInBytes) {
-        byte[] salt = new byte[lengthInBytes];
-        secureRandom.nextBytes(salt);
+        int threads = NativeThreadBudget.GLOBAL.acquire(parallelism);
+        int result;
+        try {
+            Argon2_context.ByReference context = buildContextReference(iterations, memory, parallelism, threads,
+                    hashLength, password, salt, version, secret, associatedData);
 
-        return salt;
-    }
+            result = callLibraryVerifyContext(context, rawHash);
+            wipeMemory(context);
+        } finally {
+            NativeThreadBudget.GLOBAL.release(threads);
+        }
 
-    /**
-     * Returns the hash length in bytes.
-     *
-     * @return Hash length in bytes.
-     */
-    protected int getDefaultHashLength() {
-        return defaultHashLength;
+        return result == Argon2Library.ARGON2_OK;
     }
 
-    /**
-     * Returns the Argon2 type.
-     *
-     * @return Argon2 type.
-     */
-    protected abstract Argon2Factory.Argon2Types getType();
-
     /**
      * Is called when the hash function of the native library should be called.
      *
@@ -354,18 +309,39 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
      */
     protected abstract int callLibraryVerifyContext(Argon2_context.ByReference context, byte[] rawHash);
 
-    private String hashBytes(int iterations, int memory, int parallelism, byte[] pwd) {
-        byte[] salt = generateSalt();
-        return hashBytes(iterations, memory, parallelism, pwd, salt);
+    @Override
+    protected String hashBytes(final int iterations, final int memory, final int parallelism, final byte[] pwd, final byte[] salt) {
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<String>() {
+                @Override
+                public String call() {
+                    return hashBytesDirectly(iterations, memory, parallelism, pwd, salt);
+                }
+            });
+        }
+        return hashBytesDirectly(iterations, memory, parallelism, pwd, salt);
     }
 
-    private String hashBytes(int iterations, int memory, int parallelism, byte[] pwd, byte[] salt) {
+    private String hashBytesDirectly(int iterations, int memory, int parallelism, byte[] pwd, byte[] salt) {
+        if (useContext()) {
+            byte[] hash = contextHash(iterations, memory, parallelism, pwd, salt, null, null, getDefaultHashLength(), Argon2Version.DEFAULT_VERSION);
+            return new EncodedHash(getType(), Argon2Version.DEFAULT_VERSION.getVersion(), memory, iterations, parallelism, salt, hash).encode();
+        }
+        if (FOREIGN_BINDING != null) {
+            byte[] encoded = new byte[FOREIGN_BINDING.encodedLength(getType(), iterations, memory, parallelism, salt.length, getDefaultHashLength())];
+
+            int result = FOREIGN_BINDING.hash(getType(), Argon2Version.DEFAULT_VERSION, iterations, memory, parallelism, pwd, salt, null, getDefaultHashLength(), encoded);
+            checkResult(result);
+
+            return Native.toString(encoded, ASCII);
+        }
+
         JnaUint32 jnaIterations = new JnaUint32(iterations);
         JnaUint32 jnaMemory = new JnaUint32(memory);
         JnaUint32 jnaParallelism = new JnaUint32(parallelism);
 
         int len = Argon2Library.INSTANCE.argon2_encodedlen(jnaIterations, jnaMemory, jnaParallelism,
-                new JnaUint32(salt.length), new JnaUint32(defaultHashLength), getType().getJnaType()).intValue();
+                new JnaUint32(salt.length), new JnaUint32(getDefaultHashLength()), getType().getJnaType()).intValue();
         byte[] encoded = new byte[len];
 
         int result = callLibraryHash(pwd, salt, jnaIterations, jnaMemory, jnaParallelism, encoded);
@@ -376,12 +352,38 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
 
     private void checkResult(int result) {
         if (result != Argon2Library.ARGON2_OK) {
-            String errMsg = Argon2Library.INSTANCE.argon2_error_message(result);
+            String errMsg = FOREIGN_BINDING != null
+                    ? FOREIGN_BINDING.errorMessage(result)
+                    : Argon2Library.INSTANCE.argon2_error_message(result);
             throw new IllegalStateException(String.format("%s (%d)", errMsg, result));
         }
     }
 
-    private byte[] rawHashBytes(int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, int hashLength) {
+    @Override
+    protected byte[] rawHashBytes(final int iterations, final int memory, final int parallelism, final byte[] pwd, final byte[] salt, final int hashLength) {
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return rawHashBytesDirectly(iterations, memory, parallelism, pwd, salt, hashLength);
+                }
+            });
+        }
+        return rawHashBytesDirectly(iterations, memory, parallelism, pwd, salt, hashLength);
+    }
+
+    private byte[] rawHashBytesDirectly(int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, int hashLength) {
+        if (useContext()) {
+            return contextHash(iterations, memory, parallelism, pwd, salt, null, null, hashLength, Argon2Version.DEFAULT_VERSION);
+        }
+        if (FOREIGN_BINDING != null) {
+            byte[] hash = new byte[hashLength];
+            int result = FOREIGN_BINDING.hash(getType(), Argon2Version.DEFAULT_VERSION, iterations, memory, parallelism, pwd, salt, hash, hashLength, null);
+            checkResult(result);
+
+            return hash;
+        }
+
         JnaUint32 jnaIterations = new JnaUint32(iterations);
         JnaUint32 jnaMemory = new JnaUint32(memory);
         JnaUint32 jnaParallelism = new JnaUint32(parallelism);
@@ -394,7 +396,233 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
         return hash;
     }
 
-    private boolean verifyBytes(String hash, byte[] pwd) {
+    @Override
+    byte[] rawHashBuffer(int iterations, int memory, int parallelism, ByteBuffer pwd, byte[] salt, int hashLength) {
+        if (!pwd.isDirect()) {
+            return super.rawHashBuffer(iterations, memory, parallelism, pwd, salt, hashLength);
+        }
+
+        ByteBuffer saltBuffer = ByteBuffer.allocateDirect(salt.length);
+        saltBuffer.put(salt).flip();
+        ByteBuffer hash = ByteBuffer.allocateDirect(hashLength);
+        rawHashAdvanced(iterations, memory, parallelism, pwd, saltBuffer, null, null, hash, Argon2Version.DEFAULT_VERSION);
+
+        byte[] result = new byte[hashLength];
+        hash.get(result);
+        return result;
+    }
+
+    @Override
+    public void rawHashAdvanced(final int iterations, final int memory, final int parallelism, final ByteBuffer password, final ByteBuffer salt, final ByteBuffer secret, final ByteBuffer associatedData, final ByteBuffer hash, final Argon2Version version) {
+        if (!isDirect(password) || !isDirect(salt) || !isDirect(secret) || !isDirect(associatedData) || !isDirect(hash)) {
+            super.rawHashAdvanced(iterations, memory, parallelism, password, salt, secret, associatedData, hash, version);
+            return;
+        }
+        if (VirtualThreadOffload.isNeeded()) {
+            VirtualThreadOffload.call(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    rawHashBuffersDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, hash, version);
+                    return null;
+                }
+            });
+            return;
+        }
+        rawHashBuffersDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, hash, version);
+    }
+
+    private void rawHashBuffersDirectly(int iterations, int memory, int parallelism, ByteBuffer password, ByteBuffer salt, ByteBuffer secret, ByteBuffer associatedData, ByteBuffer hash, Argon2Version version) {
+        if (!hash.hasRemaining()) throw new IllegalArgumentException("hash must have remaining bytes");
+        if (hash.isReadOnly()) throw new IllegalArgumentException("hash must not be read only");
+
+        int result = bufferContext(iterations, memory, parallelism, password, salt, secret, associatedData, address(hash), hash.remaining(), version, null);
+        checkResult(result);
+    }
+
+    @Override
+    public boolean verifyAdvanced(final int iterations, final int memory, final int parallelism, final ByteBuffer password, final ByteBuffer salt, final ByteBuffer secret, final ByteBuffer associatedData, final ByteBuffer rawHash, final Argon2Version version) {
+        if (!isDirect(password) || !isDirect(salt) || !isDirect(secret) || !isDirect(associatedData)) {
+            return super.verifyAdvanced(iterations, memory, parallelism, password, salt, secret, associatedData, rawHash, version);
+        }
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return verifyBuffersDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, toBytes(rawHash), version);
+                }
+            });
+        }
+        return verifyBuffersDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, toBytes(rawHash), version);
+    }
+
+    @Override
+    public boolean verify(final String hash, final ByteBuffer password) {
+        if (!password.isDirect()) {
+            return super.verify(hash, password);
+        }
+
+        final EncodedHash encoded;
+        try {
+            encoded = EncodedHash.parse(hash);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        final Argon2Version version = toVersion(encoded.getVersion());
+        if (encoded.getType() != getType() || version == null) {
+            return false;
+        }
+
+        final ByteBuffer salt = ByteBuffer.allocateDirect(encoded.getSalt().length);
+        salt.put(encoded.getSalt()).flip();
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return verifyBuffersDirectly(encoded.getIterations(), encoded.getMemory(), encoded.getParallelism(), password, salt, null, null, encoded.getHash(), version);
+                }
+            });
+        }
+        return verifyBuffersDirectly(encoded.getIterations(), encoded.getMemory(), encoded.getParallelism(), password, salt, null, null, encoded.getHash(), version);
+    }
+
+    private boolean verifyBuffersDirectly(int iterations, int memory, int parallelism, ByteBuffer password, ByteBuffer salt, ByteBuffer secret, ByteBuffer associatedData, byte[] rawHash, Argon2Version version) {
+        if (rawHash.length == 0) throw new IllegalArgumentException("rawHash must not be empty");
+
+        // libargon2 writes the computed hash to out before comparing it
+        Memory out = new Memory(rawHash.length);
+        try {
+            return bufferContext(iterations, memory, parallelism, password, salt, secret, associatedData, out, rawHash.length, version, rawHash) == Argon2Library.ARGON2_OK;
+        } finally {
+            out.clear(rawHash.length);
+        }
+    }
+
+    @Override
+    public byte[] rawHashAdvanced(final int iterations, final int memory, final int parallelism, final SecretBuffer password, final byte[] salt, final byte[] secret, final byte[] associatedData, final int hashLength, final Argon2Version version) {
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return rawHashSecretDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version);
+                }
+            });
+        }
+        return rawHashSecretDirectly(iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, version);
+    }
+
+    private byte[] rawHashSecretDirectly(int iterations, int memory, int parallelism, SecretBuffer password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version) {
+        if (hashLength <= 0) throw new IllegalArgumentException("hashLength must be greater than zero");
+
+        Memory out = new Memory(hashLength);
+        int result = secretContext(iterations, memory, parallelism, password, salt, secret, associatedData, out, hashLength, version, null);
+        checkResult(result);
+
+        return out.getByteArray(0, hashLength);
+    }
+
+    @Override
+    public boolean verify(final String hash, final SecretBuffer password) {
+        final EncodedHash encoded;
+        try {
+            encoded = EncodedHash.parse(hash);
+        } catch (IllegalArgumentException e) {
+            password.clear();
+            return false;
+        }
+        final Argon2Version version = toVersion(encoded.getVersion());
+        if (encoded.getType() != getType() || version == null) {
+            password.clear();
+            return false;
+        }
+
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return verifySecretDirectly(encoded, password, version);
+                }
+            });
+        }
+        return verifySecretDirectly(encoded, password, version);
+    }
+
+    private boolean verifySecretDirectly(EncodedHash encoded, SecretBuffer password, Argon2Version version) {
+        byte[] rawHash = encoded.getHash();
+        // libargon2 writes the computed hash to out before comparing it
+        Memory out = new Memory(rawHash.length);
+        try {
+            return secretContext(encoded.getIterations(), encoded.getMemory(), encoded.getParallelism(), password, encoded.getSalt(), null, null,
+                    out, rawHash.length, version, rawHash) == Argon2Library.ARGON2_OK;
+        } finally {
+            out.clear(rawHash.length);
+        }
+    }
+
+    /**
+     * Calls {@code argon2_ctx}, or {@code argon2_verify_ctx} if a raw hash is given, with the password in a
+     * {@link SecretBuffer}. libargon2 wipes the password and the copy of the secret, the buffer is empty afterwards.
+     *
+     * @return Return code.
+     */
+    private int secretContext(int iterations, int memory, int parallelism, SecretBuffer password, byte[] salt, byte[] secret, byte[] associatedData,
+                              Pointer out, int hashLength, Argon2Version version, byte[] rawHash) {
+        int threads = NativeThreadBudget.GLOBAL.acquire(parallelism);
+        try {
+            Argon2_context.ByReference context = buildContextReference(iterations, memory, parallelism, threads, out, hashLength,
+                    password.pointer(), password.length(), toMemory(salt), salt.length,
+                    toMemory(secret), secret == null ? 0 : secret.length,
+                    toMemory(associatedData), associatedData == null ? 0 : associatedData.length, version, CLEAR_FLAGS);
+
+            int result = rawHash == null ? callLibraryContext(context) : callLibraryVerifyContext(context, rawHash);
+            wipeMemory(context);
+            return result;
+        } finally {
+            NativeThreadBudget.GLOBAL.release(threads);
+            password.clear();
+        }
+    }
+
+    /**
+     * Calls {@code argon2_ctx}, or {@code argon2_verify_ctx} if a raw hash is given, through JNA with the addresses of
+     * the buffers. The buffers belong to the caller and may be read only, so they aren't wiped.
+     *
+     * @return Return code.
+     */
+    private int bufferContext(int iterations, int memory, int parallelism, ByteBuffer password, ByteBuffer salt, ByteBuffer secret, ByteBuffer associatedData,
+                              Pointer out, int hashLength, Argon2Version version, byte[] rawHash) {
+        int threads = NativeThreadBudget.GLOBAL.acquire(parallelism);
+        try {
+            Argon2_context.ByReference context = buildContextReference(iterations, memory, parallelism, threads, out, hashLength,
+                    address(password), length(password), address(salt), length(salt),
+                    address(secret), length(secret), address(associatedData), length(associatedData), version, 0);
+
+            return rawHash == null ? callLibraryContext(context) : callLibraryVerifyContext(context, rawHash);
+        } finally {
+            NativeThreadBudget.GLOBAL.release(threads);
+        }
+    }
+
+    @Override
+    protected boolean verifyBytes(final String hash, final byte[] pwd) {
+        if (VirtualThreadOffload.isNeeded()) {
+            return VirtualThreadOffload.call(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return verifyBytesDirectly(hash, pwd);
+                }
+            });
+        }
+        return verifyBytesDirectly(hash, pwd);
+    }
+
+    private boolean verifyBytesDirectly(String hash, byte[] pwd) {
+        if (useContext()) {
+            return contextVerify(hash, pwd);
+        }
+        if (FOREIGN_BINDING != null) {
+            return FOREIGN_BINDING.verify(getType(), hash, pwd) == Argon2Library.ARGON2_OK;
+        }
+
         // encoded needs to be nul terminated for strlen to work
         byte[] encoded = Native.toByteArray(hash, ASCII);
         int result = callLibraryVerify(encoded, pwd);
@@ -403,21 +631,110 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
     }
 
     /**
-     * Converts the given char array to a UTF-8 encoded byte array.
+     * Returns whether all functions go through {@code argon2_ctx} and {@code argon2_verify_ctx}.
+     *
+     * @return True if the memory pool or the thread budget is used, false otherwise.
+     */
+    private boolean useContext() {
+        return memoryPool != null || NativeThreadBudget.GLOBAL.isEnabled();
+    }
+
+    /**
+     * Returns whether the library is called through the foreign function and memory API. The binding doesn't support
+     * the memory callbacks and the thread budget, so these need JNA.
+     *
+     * @return True if the foreign function and memory API is used, false if JNA is used.
+     */
+    private boolean useForeignBinding() {
+        return !useContext() && FOREIGN_BINDING != null;
+    }
+
+    /**
+     * Loads the binding through the foreign function and memory API.
+     *
+     * @return Binding, or null on Java versions before 22, if native access isn't enabled or the library can't be
+     * called through it.
+     */
+    private static Argon2Binding loadForeignBinding() {
+        try {
+            Class<?> bindingClass = Class.forName(FOREIGN_BINDING_CLASS, false, BaseArgon2.class.getClassLoader());
+            return (Argon2Binding) bindingClass.getDeclaredMethod("create").invoke(null);
+        } catch (ClassNotFoundException e) {
+            // Java 21 or older, the multi-release JAR has no binding for it
+            return null;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Hashes the password with {@code argon2_ctx} through JNA.
+     *
+     * @param iterations     Iterations.
+     * @param memory         Memory.
+     * @param parallelism    Parallelism.
+     * @param password       Password.
+     * @param salt           Salt.
+     * @param secret         Secret (nullable).
+     * @param associatedData Associated Data (nullable).
+     * @param hashLength     Hash length.
+     * @param version        Version.
+     * @return Raw hash.
+     */
+    private byte[] contextHash(int iterations, int memory, int parallelism, byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version) {
+        int threads = NativeThreadBudget.GLOBAL.acquire(parallelism);
+        Argon2_context.ByReference context;
+        int result;
+        try {
+            context = buildContextReference(iterations, memory, parallelism, threads,
+                    hashLength, password, salt, version, secret, associatedData);
+
+            result = callLibraryContext(context);
+            wipeMemory(context);
+        } finally {
+            NativeThreadBudget.GLOBAL.release(threads);
+        }
+        checkResult(result);
+
+        return context.out.getByteArray(0, hashLength);
+    }
+
+    /**
+     * Verifies the password against the encoded hash with {@code argon2_verify_ctx} through JNA.
      *
-     * @param chars   the char array to convert
-     * @param charset Charset of the password
-     * @return UTF-8 encoded byte array
+     * @param hash Encoded hash.
+     * @param pwd  Password.
+     * @return True if the password matches the hash, false otherwise.
      */
-    private static byte[] toByteArray(char[] chars, Charset charset) {
-        assert chars != null;
+    private boolean contextVerify(String hash, byte[] pwd) {
+        EncodedHash encoded;
+        try {
+            encoded = EncodedHash.parse(hash);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        Argon2Version version = toVersion(encoded.getVersion());
+        if (encoded.getType() != getType() || version == null) {
+            return false;
+        }
+
+        int threads = NativeThreadBudget.GLOBAL.acquire(encoded.getParallelism());
+        int result;
+        try {
+            Argon2_context.ByReference context = buildContextReference(encoded.getIterations(), encoded.getMemory(), encoded.getParallelism(), threads,
+                    encoded.getHash().length, pwd, encoded.getSalt(), version, null, null);
 
-        CharBuffer charBuffer = CharBuffer.wrap(chars);
-        ByteBuffer byteBuffer = charset.encode(charBuffer);
-        byte[] bytes = Arrays.copyOfRange(byteBuffer.array(),
-                byteBuffer.position(), byteBuffer.limit());
-        Arrays.fill(byteBuffer.array(), (byte) 0); // clear sensitive data
-        return bytes;
+            result = callLibraryVerifyContext(context, encoded.getHash());
+            wipeMemory(context);
+        } finally {
+            NativeThreadBudget.GLOBAL.release(threads);
+        }
+
+        return result == Argon2Library.ARGON2_OK;
     }
 
     /**
@@ -426,6 +743,7 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
      * @param iterations     Iterations.
      * @param memory         Memory.
      * @param parallelism    Parallelism.
+     * @param threads        Number of threads which compute the lanes.
      * @param hashLength     Hash length.
      * @param password       Password.
      * @param salt           Salt.
@@ -434,51 +752,120 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
      * @param associatedData Associated Data (nullable).
      * @return {@link Argon2_context}
      */
-    private static Argon2_context.ByReference buildContextReference(int iterations, int memory, int parallelism, int hashLength, byte[] password, byte[] salt, Argon2Version version, byte[] secret, byte[] associatedData) {
+    private Argon2_context.ByReference buildContextReference(int iterations, int memory, int parallelism, int threads, int hashLength, byte[] password, byte[] salt, Argon2Version version, byte[] secret, byte[] associatedData) {
+        return buildContextReference(iterations, memory, parallelism, threads, new Memory(hashLength), hashLength,
+                toMemory(password), password.length, toMemory(salt), salt.length,
+                toMemory(secret), secret == null ? 0 : secret.length,
+                toMemory(associatedData), associatedData == null ? 0 : associatedData.length, version, CLEAR_FLAGS);
+    }
+
+    /**
+     * Builds a {@link Argon2_context} which points to the given memory. The memory isn't copied.
+     *
+     * @param iterations           Iterations.
+     * @param memory               Memory.
+     * @param parallelism          Parallelism.
+     * @param threads              Number of threads which compute the lanes.
+     * @param out                  Memory for the hash.
+     * @param hashLength           Hash length.
+     * @param password             Password.
+     * @param passwordLength       Password length.
+     * @param salt                 Salt.
+     * @param saltLength           Salt length.
+     * @param secret               Secret (nullable).
+     * @param secretLength         Secret length.
+     * @param associatedData       Associated Data (nullable).
+     * @param associatedDataLength Associated Data length.
+     * @param version              Version.
+     * @param flags                Flags, e.g. {@link #CLEAR_FLAGS}.
+     * @return {@link Argon2_context}
+     */
+    private Argon2_context.ByReference buildContextReference(int iterations, int memory, int parallelism, int threads, Pointer out, int hashLength,
+                                                             Pointer password, int passwordLength, Pointer salt, int saltLength,
+                                                             Pointer secret, int secretLength, Pointer associatedData, int associatedDataLength,
+                                                             Argon2Version version, int flags) {
         Argon2_context.ByReference context = new Argon2_context.ByReference();
 
-        context.out = new Memory(hashLength);
+        context.out = out;
         context.outlen = new JnaUint32(hashLength);
 
-        context.pwd = new Memory(password.length);
-        context.pwd.write(0, password, 0, password.length);
-        context.pwdlen = new JnaUint32(password.length);
+        context.pwd = password;
+        context.pwdlen = new JnaUint32(passwordLength);
 
-        context.salt = new Memory(salt.length);
-        context.salt.write(0, salt, 0, salt.length);
-        context.saltlen = new JnaUint32(salt.length);
+        context.salt = salt;
+        context.saltlen = new JnaUint32(saltLength);
 
         context.t_cost = new JnaUint32(iterations);
         context.m_cost = new JnaUint32(memory);
 
-        // lanes and threads properties are set similar to the argon2.h c library function int argon_hash(...)
+        // The hash only depends on the lanes, the threads can be fewer, see NativeThreadBudget
         // see: https://github.com/P-H-C/phc-winner-argon2/blob/master/include/argon2.h
         context.lanes = new JnaUint32(parallelism);
-        context.threads = new JnaUint32(parallelism);
+        context.threads = new JnaUint32(threads);
 
         context.version = version.getJnaType();
 
         if (secret != null) {
-            context.secret = new Memory(secret.length);
-            context.secret.write(0, secret, 0, secret.length);
-            context.secretlen = new JnaUint32(secret.length);
+            context.secret = secret;
+            context.secretlen = new JnaUint32(secretLength);
         }
 
         if (associatedData != null) {
-            context.ad = new Memory(associatedData.length);
-            context.ad.write(0, associatedData, 0, associatedData.length);
-            context.adlen = new JnaUint32(associatedData.length);
+            context.ad = associatedData;
+            context.adlen = new JnaUint32(associatedDataLength);
         }
 
-        // Setting this to null means that argon2 uses internal memory management
-        context.allocate_cbk = Pointer.NULL;
-        context.free_cbk = Pointer.NULL;
+        if (memoryPool != null) {
+            context.allocate_cbk = memoryPool.getAllocateFunction();
+            context.free_cbk = memoryPool.getDeallocateFunction();
+        } else {
+            // Setting this to null means that argon2 uses internal memory management
+            context.allocate_cbk = Pointer.NULL;
+            context.free_cbk = Pointer.NULL;
+        }
 
-        context.flags = new JnaUint32(0);
+        context.flags = new JnaUint32(flags);
 
         return context;
     }
 
+    /**
+     * Copies the data into native memory.
+     *
+     * @param data Data (nullable).
+     * @return Native memory, or null if the data is null.
+     */
+    private static Memory toMemory(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        // JNA can't allocate 0 bytes, libargon2 accepts empty passwords
+        Memory memory = new Memory(Math.max(data.length, 1));
+        memory.write(0, data, 0, data.length);
+        return memory;
+    }
+
+    /**
+     * Returns the address of the remaining content of a direct buffer.
+     *
+     * @param buffer Direct buffer (nullable).
+     * @return Address of the position of the buffer, or null if the buffer is null or empty.
+     */
+    private static Pointer address(ByteBuffer buffer) {
+        if (buffer == null || !buffer.hasRemaining()) {
+            return null;
+        }
+        return Native.getDirectBufferPointer(buffer).share(buffer.position());
+    }
+
+    private static int length(ByteBuffer buffer) {
+        return buffer == null ? 0 : buffer.remaining();
+    }
+
+    private static boolean isDirect(ByteBuffer buffer) {
+        return buffer == null || buffer.isDirect();
+    }
+
     /**
      * Wipes the confidential data from a previously created context except for
      * the {@link Argon2_context#out} field as this stores the hash.
@@ -486,10 +873,11 @@ abstract class BaseArgon2 implements Argon2, Argon2Advanced {
      * @param context {@link Argon2_context}
      */
     private static void wipeMemory(Argon2_context context) {
-        // TODO: This can be replaced by setting argon2 flags
-        // see https://github.com/P-H-C/phc-winner-argon2/blob/16d3df698db2486dde480b09a732bf9bf48599f9/include/argon2.h#L91
-
-        context.pwd.clear(context.pwdlen.longValue());
+        // With the CLEAR_FLAGS, libargon2 has already wiped the password and the secret and set their lengths to 0.
+        // They are only left if libargon2 has rejected the parameters before hashing.
+        if (context.pwdlen.longValue() != 0 && context.pwd != Pointer.NULL) {
+            context.pwd.clear(context.pwdlen.longValue());
+        }
         context.salt.clear(context.saltlen.longValue());
 
         if (context.secretlen.longValue() != 0 && context.secret != Pointer.NULL) {
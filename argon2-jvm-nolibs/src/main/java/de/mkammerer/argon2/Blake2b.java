@@ -0,0 +1,191 @@
+package de.mkammerer.argon2;
+
+/**
+ * Pure Java implementation of the BLAKE2b hash function (RFC 7693), as used by Argon2.
+ * <p>
+ * Instances are not thread safe and can't be reused after {@link #doFinal(byte[], int)} has been called.
+ */
+final class Blake2b {
+    /**
+     * Block length in bytes.
+     */
+    static final int BLOCK_LENGTH = 128;
+
+    /**
+     * Maximum output length in bytes.
+     */
+    static final int MAX_OUTPUT_LENGTH = 64;
+
+    private static final long[] IV = {
+            0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+            0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L
+    };
+
+    private static final byte[][] SIGMA = {
+            {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+            {14, 10, 4, 8, 9, 15, 13, 6, 1, 12, 0, 2, 11, 7, 5, 3},
+            {11, 8, 12, 0, 5, 2, 15, 13, 10, 14, 3, 6, 7, 1, 9, 4},
+            {7, 9, 3, 1, 13, 12, 11, 14, 2, 6, 5, 10, 4, 0, 15, 8},
+            {9, 0, 5, 7, 2, 4, 10, 15, 14, 1, 11, 12, 6, 8, 3, 13},
+            {2, 12, 6, 10, 0, 11, 8, 3, 4, 13, 7, 5, 15, 14, 1, 9},
+            {12, 5, 1, 15, 14, 13, 4, 10, 0, 7, 6, 3, 9, 2, 8, 11},
+            {13, 11, 7, 14, 12, 1, 3, 9, 5, 0, 15, 4, 8, 6, 2, 10},
+            {6, 15, 14, 9, 11, 3, 0, 8, 12, 2, 13, 7, 1, 4, 10, 5},
+            {10, 2, 8, 4, 7, 6, 1, 5, 15, 11, 9, 14, 3, 12, 13, 0}
+    };
+
+    private static final int ROUNDS = 12;
+
+    private final long[] h = new long[8];
+    private final long[] m = new long[16];
+    private final long[] v = new long[16];
+    private final byte[] buffer = new byte[BLOCK_LENGTH];
+    private final int outputLength;
+    private int bufferLength;
+    private long counter;
+
+    /**
+     * Constructor.
+     *
+     * @param outputLength Output length in bytes, 1 to 64.
+     */
+    Blake2b(int outputLength) {
+        this(outputLength, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param outputLength Output length in bytes, 1 to 64.
+     * @param key          Key with at most 64 bytes (nullable).
+     */
+    Blake2b(int outputLength, byte[] key) {
+        if (outputLength < 1 || outputLength > MAX_OUTPUT_LENGTH) {
+            throw new IllegalArgumentException("outputLength must be between 1 and " + MAX_OUTPUT_LENGTH);
+        }
+        int keyLength = key == null ? 0 : key.length;
+        if (keyLength > MAX_OUTPUT_LENGTH) {
+            throw new IllegalArgumentException("key must not be longer than " + MAX_OUTPUT_LENGTH + " bytes");
+        }
+        this.outputLength = outputLength;
+
+        System.arraycopy(IV, 0, h, 0, IV.length);
+        h[0] ^= 0x01010000L ^ ((long) keyLength << 8) ^ outputLength;
+
+        if (keyLength > 0) {
+            byte[] block = new byte[BLOCK_LENGTH];
+            System.arraycopy(key, 0, block, 0, keyLength);
+            update(block, 0, BLOCK_LENGTH);
+            Argon2Engine.wipe(block);
+        }
+    }
+
+    /**
+     * Hashes the given bytes.
+     *
+     * @param in Input.
+     */
+    void update(byte[] in) {
+        update(in, 0, in.length);
+    }
+
+    /**
+     * Hashes the given bytes.
+     *
+     * @param in     Input.
+     * @param offset Offset in the input.
+     * @param length Number of bytes to hash.
+     */
+    void update(byte[] in, int offset, int length) {
+        while (length > 0) {
+            if (bufferLength == BLOCK_LENGTH) {
+                // The last block must not be compressed before doFinal, as it needs the final flag
+                counter += BLOCK_LENGTH;
+                compress(buffer, 0, false);
+                bufferLength = 0;
+            }
+            int chunk = Math.min(BLOCK_LENGTH - bufferLength, length);
+            System.arraycopy(in, offset, buffer, bufferLength, chunk);
+            bufferLength += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Hashes the given value as 32 bit little endian integer.
+     *
+     * @param value Value.
+     */
+    void updateInt(int value) {
+        byte[] bytes = new byte[4];
+        Argon2Engine.storeInt(bytes, 0, value);
+        update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Finishes the hash computation.
+     *
+     * @param out    Output array.
+     * @param offset Offset in the output array, where the hash is written to.
+     */
+    void doFinal(byte[] out, int offset) {
+        counter += bufferLength;
+        for (int i = bufferLength; i < BLOCK_LENGTH; i++) {
+            buffer[i] = 0;
+        }
+        compress(buffer, 0, true);
+        Argon2Engine.wipe(buffer);
+
+        byte[] result = new byte[MAX_OUTPUT_LENGTH];
+        for (int i = 0; i < h.length; i++) {
+            Argon2Engine.storeLong(result, i * 8, h[i]);
+        }
+        System.arraycopy(result, 0, out, offset, outputLength);
+        Argon2Engine.wipe(result);
+        Argon2Engine.wipe(h);
+        Argon2Engine.wipe(m);
+        Argon2Engine.wipe(v);
+    }
+
+    private void compress(byte[] block, int offset, boolean last) {
+        for (int i = 0; i < 16; i++) {
+            m[i] = Argon2Engine.loadLong(block, offset + i * 8);
+        }
+
+        System.arraycopy(h, 0, v, 0, 8);
+        System.arraycopy(IV, 0, v, 8, 8);
+        v[12] ^= counter;
+        // Messages longer than 2^64 bytes are not supported, so the upper half of the counter is always 0
+        if (last) {
+            v[14] = ~v[14];
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            byte[] s = SIGMA[round % 10];
+            g(0, 4, 8, 12, m[s[0]], m[s[1]]);
+            g(1, 5, 9, 13, m[s[2]], m[s[3]]);
+            g(2, 6, 10, 14, m[s[4]], m[s[5]]);
+            g(3, 7, 11, 15, m[s[6]], m[s[7]]);
+            g(0, 5, 10, 15, m[s[8]], m[s[9]]);
+            g(1, 6, 11, 12, m[s[10]], m[s[11]]);
+            g(2, 7, 8, 13, m[s[12]], m[s[13]]);
+            g(3, 4, 9, 14, m[s[14]], m[s[15]]);
+        }
+
+        for (int i = 0; i < 8; i++) {
+            h[i] ^= v[i] ^ v[i + 8];
+        }
+    }
+
+    private void g(int a, int b, int c, int d, long x, long y) {
+        v[a] = v[a] + v[b] + x;
+        v[d] = Long.rotateRight(v[d] ^ v[a], 32);
+        v[c] = v[c] + v[d];
+        v[b] = Long.rotateRight(v[b] ^ v[c], 24);
+        v[a] = v[a] + v[b] + y;
+        v[d] = Long.rotateRight(v[d] ^ v[a], 16);
+        v[c] = v[c] + v[d];
+        v[b] = Long.rotateRight(v[b] ^ v[c], 63);
+    }
+}
@@ -0,0 +1,248 @@
+package de.mkammerer.argon2;
+
+/**
+ * Encoded representation of an Argon2 hash, e.g. {@code $argon2id$v=19$m=65536,t=2,p=1$c29tZXNhbHQ$aGFzaA}.
+ * <p>
+ * Uses the same format as libargon2: the salt and the hash are Base64 encoded without padding.
+ */
+final class EncodedHash {
+    private static final char[] BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final int[] BASE64_VALUES = new int[128];
+
+    static {
+        for (int i = 0; i < BASE64_VALUES.length; i++) {
+            BASE64_VALUES[i] = -1;
+        }
+        for (int i = 0; i < BASE64_ALPHABET.length; i++) {
+            BASE64_VALUES[BASE64_ALPHABET[i]] = i;
+        }
+    }
+
+    private final Argon2Factory.Argon2Types type;
+    private final int version;
+    private final int memory;
+    private final int iterations;
+    private final int parallelism;
+    private final byte[] salt;
+    private final byte[] hash;
+
+    EncodedHash(Argon2Factory.Argon2Types type, int version, int memory, int iterations, int parallelism, byte[] salt, byte[] hash) {
+        this.type = type;
+        this.version = version;
+        this.memory = memory;
+        this.iterations = iterations;
+        this.parallelism = parallelism;
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    /**
+     * Parses an encoded hash.
+     *
+     * @param encoded Encoded hash.
+     * @return Parsed hash.
+     * @throws IllegalArgumentException If the hash is invalid.
+     */
+    static EncodedHash parse(String encoded) {
+        Parser parser = new Parser(encoded);
+
+        parser.expect("$argon2");
+        Argon2Factory.Argon2Types type;
+        if (parser.consume("id$")) {
+            type = Argon2Factory.Argon2Types.ARGON2id;
+        } else if (parser.consume("i$")) {
+            type = Argon2Factory.Argon2Types.ARGON2i;
+        } else if (parser.consume("d$")) {
+            type = Argon2Factory.Argon2Types.ARGON2d;
+        } else {
+            throw parser.invalid();
+        }
+
+        // Like libargon2, hashes without a version are version 1.0
+        int version = Argon2Version.V10.getVersion();
+        if (parser.consume("v=")) {
+            version = parser.decimal();
+            parser.expect("$");
+        }
+
+        parser.expect("m=");
+        int memory = parser.decimal();
+        parser.expect(",t=");
+        int iterations = parser.decimal();
+        parser.expect(",p=");
+        int parallelism = parser.decimal();
+        parser.expect("$");
+        byte[] salt = parser.base64();
+        parser.expect("$");
+        byte[] hash = parser.base64();
+        parser.expectEnd();
+
+        return new EncodedHash(type, version, memory, iterations, parallelism, salt, hash);
+    }
+
+    /**
+     * Encodes the hash.
+     *
+     * @return Encoded hash.
+     */
+    String encode() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("$argon2").append(typeName(type))
+                .append("$v=").append(version)
+                .append("$m=").append(memory)
+                .append(",t=").append(iterations)
+                .append(",p=").append(parallelism)
+                .append('$');
+        appendBase64(builder, salt);
+        builder.append('$');
+        appendBase64(builder, hash);
+        return builder.toString();
+    }
+
+    Argon2Factory.Argon2Types getType() {
+        return type;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    int getMemory() {
+        return memory;
+    }
+
+    int getIterations() {
+        return iterations;
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    byte[] getSalt() {
+        return salt;
+    }
+
+    byte[] getHash() {
+        return hash;
+    }
+
+    private static String typeName(Argon2Factory.Argon2Types type) {
+        switch (type) {
+            case ARGON2i:
+                return "i";
+            case ARGON2d:
+                return "d";
+            case ARGON2id:
+                return "id";
+            default:
+                throw new IllegalArgumentException("Invalid argon2 type");
+        }
+    }
+
+    private static void appendBase64(StringBuilder builder, byte[] data) {
+        int i = 0;
+        for (; i + 3 <= data.length; i += 3) {
+            int value = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+            builder.append(BASE64_ALPHABET[value >>> 18])
+                    .append(BASE64_ALPHABET[(value >>> 12) & 0x3F])
+                    .append(BASE64_ALPHABET[(value >>> 6) & 0x3F])
+                    .append(BASE64_ALPHABET[value & 0x3F]);
+        }
+
+        int remaining = data.length - i;
+        if (remaining == 1) {
+            int value = (data[i] & 0xFF) << 16;
+            builder.append(BASE64_ALPHABET[value >>> 18])
+                    .append(BASE64_ALPHABET[(value >>> 12) & 0x3F]);
+        } else if (remaining == 2) {
+            int value = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8;
+            builder.append(BASE64_ALPHABET[value >>> 18])
+                    .append(BASE64_ALPHABET[(value >>> 12) & 0x3F])
+                    .append(BASE64_ALPHABET[(value >>> 6) & 0x3F]);
+        }
+    }
+
+    /**
+     * Parser for encoded hashes, reads the hash from left to right.
+     */
+    private static final class Parser {
+        private final String input;
+        private int position;
+
+        Parser(String input) {
+            this.input = input;
+        }
+
+        boolean consume(String expected) {
+            if (input.startsWith(expected, position)) {
+                position += expected.length();
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String expected) {
+            if (!consume(expected)) {
+                throw invalid();
+            }
+        }
+
+        void expectEnd() {
+            if (position != input.length()) {
+                throw invalid();
+            }
+        }
+
+        int decimal() {
+            int start = position;
+            long value = 0;
+            while (position < input.length() && input.charAt(position) >= '0' && input.charAt(position) <= '9') {
+                value = value * 10 + (input.charAt(position) - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw invalid();
+                }
+                position++;
+            }
+            if (position == start) {
+                throw invalid();
+            }
+            return (int) value;
+        }
+
+        byte[] base64() {
+            int start = position;
+            while (position < input.length() && input.charAt(position) < 128 && BASE64_VALUES[input.charAt(position)] >= 0) {
+                position++;
+            }
+            int length = position - start;
+            if (length % 4 == 1) {
+                throw invalid();
+            }
+
+            byte[] result = new byte[length * 3 / 4];
+            int accumulator = 0;
+            int bits = 0;
+            int index = 0;
+            for (int i = start; i < position; i++) {
+                accumulator = (accumulator << 6) | BASE64_VALUES[input.charAt(i)];
+                bits += 6;
+                if (bits >= 8) {
+                    bits -= 8;
+                    result[index++] = (byte) (accumulator >>> bits);
+                    accumulator &= (1 << bits) - 1;
+                }
+            }
+            // Like libargon2, reject encodings with non-zero trailing bits
+            if (accumulator != 0) {
+                throw invalid();
+            }
+            return result;
+        }
+
+        IllegalArgumentException invalid() {
+            return new IllegalArgumentException("Invalid hash '" + input + "'");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package de.mkammerer.argon2;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Helpers for futures.
+ */
+final class Futures {
+    private Futures() {
+    }
+
+    /**
+     * Waits until the future is done and returns its result.
+     * <p>
+     * A running hash can't be stopped, and it may still read the caller's arrays or memory. So if the current thread
+     * is interrupted, it keeps waiting for the result and is interrupted again afterwards.
+     *
+     * @param future Future.
+     * @param <T>    Type of the result.
+     * @return Result of the future.
+     * @throws RuntimeException The exception of the task, {@link IllegalStateException} for checked exceptions.
+     */
+    static <T> T awaitUninterruptibly(Future<T> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
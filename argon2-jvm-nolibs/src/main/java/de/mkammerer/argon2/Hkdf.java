@@ -0,0 +1,53 @@
+package de.mkammerer.argon2;
+
+import javax.crypto.Mac;
+import java.util.Arrays;
+
+/**
+ * The expand step of HKDF with HMAC-SHA256 (RFC 5869).
+ * <p>
+ * The extract step is skipped: the input is the output of Argon2, which is already a uniformly random key.
+ */
+final class Hkdf {
+    /**
+     * Length of the HMAC-SHA256 output in bytes.
+     */
+    static final int HASH_LENGTH = HmacSha256.LENGTH;
+
+    private Hkdf() {
+    }
+
+    /**
+     * Expands a pseudorandom key to a key for the given context.
+     *
+     * @param prk    Pseudorandom key, at least {@link #HASH_LENGTH} bytes.
+     * @param info   Context of the key, e.g. its purpose.
+     * @param length Length of the key in bytes, at most 255 * {@link #HASH_LENGTH}.
+     * @return Key.
+     */
+    static byte[] expand(byte[] prk, byte[] info, int length) {
+        if (length < 1 || length > 255 * HASH_LENGTH) {
+            throw new IllegalArgumentException("length must be between 1 and " + 255 * HASH_LENGTH);
+        }
+
+        Mac mac = HmacSha256.create(prk);
+
+        // T(i) = HMAC(PRK, T(i - 1) | info | i)
+        byte[] result = new byte[length];
+        byte[] block = new byte[0];
+        int offset = 0;
+        for (int i = 1; offset < length; i++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) i);
+            Arrays.fill(block, (byte) 0);
+            block = mac.doFinal();
+
+            int count = Math.min(block.length, length - offset);
+            System.arraycopy(block, 0, result, offset, count);
+            offset += count;
+        }
+        Arrays.fill(block, (byte) 0);
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package de.mkammerer.argon2;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Creates HMAC-SHA256 instances and keys.
+ * <p>
+ * {@link Mac} isn't thread safe, so every computation gets a new instance. Creating one is cheap compared to Argon2.
+ */
+final class HmacSha256 {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * Length of the MAC in bytes.
+     */
+    static final int LENGTH = 32;
+
+    private HmacSha256() {
+    }
+
+    /**
+     * Creates a random key of {@link #LENGTH} bytes, e.g. for MACs which must never leave the instance.
+     *
+     * @return Key.
+     */
+    static SecretKeySpec randomKey() {
+        byte[] keyBytes = new byte[LENGTH];
+        new SecureRandom().nextBytes(keyBytes);
+        SecretKeySpec key = new SecretKeySpec(keyBytes, ALGORITHM);
+        Arrays.fill(keyBytes, (byte) 0);
+        return key;
+    }
+
+    /**
+     * Creates an HMAC-SHA256 instance with the given key.
+     *
+     * @param key Key.
+     * @return Initialized {@link Mac}.
+     */
+    static Mac create(byte[] key) {
+        return create(new SecretKeySpec(key, ALGORITHM));
+    }
+
+    /**
+     * Creates an HMAC-SHA256 instance with the given key.
+     *
+     * @param key Key.
+     * @return Initialized {@link Mac}.
+     */
+    static Mac create(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            // Every JVM has to support HmacSHA256
+            throw new IllegalStateException("HmacSHA256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package de.mkammerer.argon2;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import de.mkammerer.argon2.jna.CLibrary;
+import de.mkammerer.argon2.jna.Size_t;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Maps memory with huge pages on Linux.
+ * <p>
+ * First tries {@code MAP_HUGETLB}, which needs huge pages reserved by the administrator ({@code vm.nr_hugepages}).
+ * Otherwise maps normal memory aligned to the huge page size and asks for transparent huge pages with
+ * {@code madvise(MADV_HUGEPAGE)}. Whether the kernel has backed the memory with transparent huge pages is read from
+ * {@code /proc/self/smaps} after the memory has been touched.
+ */
+final class HugePages {
+    private static final int PROT_READ_WRITE = CLibrary.PROT_READ | CLibrary.PROT_WRITE;
+
+    /**
+     * Used if the size can't be read from {@code /proc/meminfo}.
+     */
+    private static final long DEFAULT_HUGE_PAGE_SIZE = 2 * 1024 * 1024;
+
+    private static final long HUGE_PAGE_SIZE = readHugePageSize();
+
+    private HugePages() {
+    }
+
+    /**
+     * Returns whether memory of the given size can be mapped with huge pages.
+     *
+     * @param size Size in bytes.
+     * @return True if huge pages can be used for this size, false otherwise.
+     */
+    static boolean isApplicable(long size) {
+        return isSupportedPlatform() && size >= HUGE_PAGE_SIZE && size % HUGE_PAGE_SIZE == 0;
+    }
+
+    /**
+     * Maps memory, see the class comment.
+     *
+     * @param size Size in bytes, a multiple of the huge page size.
+     * @return Mapping, or null if the memory couldn't be mapped.
+     */
+    static Mapping map(long size) {
+        CLibrary c;
+        try {
+            c = CLibrary.INSTANCE;
+        } catch (LinkageError e) {
+            // C library can't be loaded
+            return null;
+        }
+
+        Pointer pointer = c.mmap(null, new Size_t(size), PROT_READ_WRITE, CLibrary.MAP_PRIVATE | CLibrary.MAP_ANONYMOUS | CLibrary.MAP_HUGETLB, -1, new NativeLong(0));
+        if (!failed(pointer)) {
+            return new Mapping(pointer, size, true);
+        }
+
+        // No reserved huge pages. Map one huge page more and cut off the ends, so that the transparent huge pages
+        // can cover the whole memory
+        long length = size + HUGE_PAGE_SIZE;
+        pointer = c.mmap(null, new Size_t(length), PROT_READ_WRITE, CLibrary.MAP_PRIVATE | CLibrary.MAP_ANONYMOUS, -1, new NativeLong(0));
+        if (failed(pointer)) {
+            return null;
+        }
+
+        long address = Pointer.nativeValue(pointer);
+        long aligned = (address + HUGE_PAGE_SIZE - 1) & -HUGE_PAGE_SIZE;
+        if (aligned > address) {
+            c.munmap(pointer, new Size_t(aligned - address));
+        }
+        long tail = address + length - (aligned + size);
+        if (tail > 0) {
+            c.munmap(new Pointer(aligned + size), new Size_t(tail));
+        }
+
+        Pointer alignedPointer = new Pointer(aligned);
+        // If this fails, e.g. because the kernel has no transparent huge pages, the memory uses normal pages
+        c.madvise(alignedPointer, new Size_t(size), CLibrary.MADV_HUGEPAGE);
+        return new Mapping(alignedPointer, size, false);
+    }
+
+    /**
+     * Unmaps memory which has been mapped by {@link #map(long)}.
+     *
+     * @param mapping Mapping.
+     */
+    static void unmap(Mapping mapping) {
+        CLibrary.INSTANCE.munmap(mapping.pointer, new Size_t(mapping.size));
+    }
+
+    /**
+     * Returns whether the memory is backed by huge pages. The memory must have been touched before.
+     *
+     * @param mapping Mapping.
+     * @return True if at least a part of the memory is backed by huge pages, false otherwise.
+     */
+    static boolean isBackedByHugePages(Mapping mapping) {
+        if (mapping.hugetlb) {
+            return true;
+        }
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream("/proc/self/smaps"), "US-ASCII"));
+            try {
+                return anonHugePages(reader, Pointer.nativeValue(mapping.pointer)) > 0;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the size of the transparent huge pages in the mapping which contains the given address.
+     *
+     * @param smaps   Reader for {@code /proc/self/smaps}.
+     * @param address Address.
+     * @return Size of the transparent huge pages in KiB, 0 if the mapping hasn't been found.
+     * @throws IOException If reading failed.
+     */
+    static long anonHugePages(BufferedReader smaps, long address) throws IOException {
+        boolean inMapping = false;
+        String line;
+        while ((line = smaps.readLine()) != null) {
+            int dash = line.indexOf('-');
+            int space = line.indexOf(' ');
+            if (dash > 0 && space > dash && isHex(line, 0, dash)) {
+                // Header line of a mapping, e.g. "7f0000000000-7f0004000000 rw-p 00000000 00:00 0"
+                long start = Long.parseLong(line.substring(0, dash), 16);
+                long end = Long.parseLong(line.substring(dash + 1, space), 16);
+                inMapping = start <= address && address < end;
+            } else if (inMapping && line.startsWith("AnonHugePages:")) {
+                return Long.parseLong(line.substring("AnonHugePages:".length()).replace("kB", "").trim());
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isHex(String line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (Character.digit(line.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean failed(Pointer pointer) {
+        return pointer == null || Pointer.nativeValue(pointer) == CLibrary.MAP_FAILED;
+    }
+
+    static boolean isSupportedPlatform() {
+        // The constants in CLibrary are the ones of these platforms
+        return Platform.isLinux() && (Platform.isIntel() || Platform.isARM());
+    }
+
+    private static long readHugePageSize() {
+        if (!isSupportedPlatform()) {
+            return DEFAULT_HUGE_PAGE_SIZE;
+        }
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream("/proc/meminfo"), "US-ASCII"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("Hugepagesize:")) {
+                        return Long.parseLong(line.substring("Hugepagesize:".length()).replace("kB", "").trim()) * 1024;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // Use the default
+        } catch (NumberFormatException e) {
+            // Use the default
+        }
+        return DEFAULT_HUGE_PAGE_SIZE;
+    }
+
+    /**
+     * Memory which has been mapped by {@link #map(long)}.
+     */
+    static final class Mapping {
+        private final Pointer pointer;
+        private final long size;
+        private final boolean hugetlb;
+
+        Mapping(Pointer pointer, long size, boolean hugetlb) {
+            this.pointer = pointer;
+            this.size = size;
+            this.hugetlb = hugetlb;
+        }
+
+        Pointer getPointer() {
+            return pointer;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package de.mkammerer.argon2;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Argon2 password hashing function, implemented in pure Java.
+ * <p>
+ * Needs neither JNA nor the native Argon2 library and produces the same hashes as the native implementations. The
+ * memory for the hash is allocated on the Java heap. Lanes are filled in parallel on the given executor.
+ * <p>
+ * This class is thread safe.
+ */
+class JavaArgon2 extends AbstractArgon2 {
+    private final Argon2Factory.Argon2Types type;
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param type              Argon2 type.
+     * @param defaultSaltLength Default salt length in bytes. Can be overridden by some methods.
+     * @param defaultHashLength Default hash length in bytes. Can be overridden by some methods.
+     * @param executor          Executor which fills the lanes in parallel. If null, the lanes are filled by the
+     *                          calling thread.
+     */
+    JavaArgon2(Argon2Factory.Argon2Types type, int defaultSaltLength, int defaultHashLength, Executor executor) {
+        super(defaultSaltLength, defaultHashLength);
+        this.type = type;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the executor which is used if the caller doesn't provide one. The executor has one daemon thread per
+     * available processor.
+     *
+     * @return Default executor.
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    @Override
+    public Argon2Factory.Argon2Types getType() {
+        return type;
+    }
+
+    @Override
+    Argon2Advanced withType(Argon2Factory.Argon2Types type) {
+        return new JavaArgon2(type, getDefaultSaltLength(), getDefaultHashLength(), executor);
+    }
+
+    @Override
+    public HashResult hashAdvanced(int iterations, int memory, int parallelism, byte[] password, byte[] salt, int hashLength, Argon2Version version) {
+        byte[] hash = Argon2Engine.hash(type, version, iterations, memory, parallelism, password, salt, null, null, hashLength, executor);
+        String encoded = new EncodedHash(type, version.getVersion(), memory, iterations, parallelism, salt, hash).encode();
+        return new HashResult(hash, encoded);
+    }
+
+    @Override
+    public byte[] rawHashAdvanced(int iterations, int memory, int parallelism, byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version) {
+        if (hashLength <= 0) throw new IllegalArgumentException("hashLength must be greater than zero");
+        return Argon2Engine.hash(type, version, iterations, memory, parallelism, password, salt, secret, associatedData, hashLength, executor);
+    }
+
+    @Override
+    public boolean verifyAdvanced(int iterations, int memory, int parallelism, byte[] password, byte[] salt, byte[] secret, byte[] associatedData, int hashLength, Argon2Version version, byte[] rawHash) {
+        if (hashLength <= 0) throw new IllegalArgumentException("hashLength must be greater than zero");
+        if (rawHash.length != hashLength) {
+            return false;
+        }
+        return verifyRaw(version.getVersion(), iterations, memory, parallelism, password, salt, secret, associatedData, rawHash);
+    }
+
+    @Override
+    protected String hashBytes(int iterations, int memory, int parallelism, byte[] pwd, byte[] salt) {
+        return hashAdvanced(iterations, memory, parallelism, pwd, salt, getDefaultHashLength(), Argon2Version.DEFAULT_VERSION).getEncoded();
+    }
+
+    @Override
+    protected byte[] rawHashBytes(int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, int hashLength) {
+        return Argon2Engine.hash(type, Argon2Version.DEFAULT_VERSION, iterations, memory, parallelism, pwd, salt, null, null, hashLength, executor);
+    }
+
+    @Override
+    protected boolean verifyBytes(String hash, byte[] pwd) {
+        EncodedHash encoded;
+        try {
+            encoded = EncodedHash.parse(hash);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (encoded.getType() != type) {
+            return false;
+        }
+
+        return verifyRaw(encoded.getVersion(), encoded.getIterations(), encoded.getMemory(), encoded.getParallelism(),
+                pwd, encoded.getSalt(), null, null, encoded.getHash());
+    }
+
+    private boolean verifyRaw(int version, int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, byte[] secret, byte[] associatedData, byte[] expected) {
+        Argon2Version argon2Version = toVersion(version);
+        if (argon2Version == null) {
+            return false;
+        }
+
+        byte[] actual;
+        try {
+            actual = Argon2Engine.hash(type, argon2Version, iterations, memory, parallelism, pwd, salt, secret, associatedData, expected.length, executor);
+        } catch (IllegalStateException e) {
+            // Like the native verify functions, invalid parameters don't match
+            return false;
+        }
+
+        try {
+            return constantTimeEquals(actual, expected);
+        } finally {
+            wipeArray(actual);
+        }
+    }
+
+    private static boolean constantTimeEquals(byte[] a, byte[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        int difference = 0;
+        for (int i = 0; i < a.length; i++) {
+            difference |= a[i] ^ b[i];
+        }
+        return difference == 0;
+    }
+
+    /**
+     * Lazy holder for the default executor.
+     */
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("argon2-lane-"));
+    }
+}
@@ -0,0 +1,98 @@
+package de.mkammerer.argon2;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of threads which compute lanes in the native library at the same time.
+ * <p>
+ * libargon2 computes the lanes of a hash on {@code context.threads} threads. The hash only depends on the number of
+ * lanes, so a call can run its lanes on fewer threads without changing the result. Every call gets as many threads as
+ * it has lanes, as long as the budget isn't used up. If it is, the call computes its lanes one after the other on the
+ * calling thread, instead of adding even more threads to the already busy CPUs.
+ */
+final class NativeThreadBudget {
+    /**
+     * Budget which is used by all native {@link Argon2} instances.
+     */
+    static final NativeThreadBudget GLOBAL = new NativeThreadBudget();
+
+    /**
+     * Maximum number of threads, 0 if disabled.
+     */
+    private volatile int limit;
+
+    /**
+     * Number of threads which are currently handed out.
+     */
+    private final AtomicInteger used = new AtomicInteger();
+
+    /**
+     * Sets the maximum number of threads.
+     *
+     * @param limit Maximum number of threads, 0 disables the budget.
+     */
+    void setLimit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit must be >= 0");
+        this.limit = limit;
+    }
+
+    /**
+     * Returns the maximum number of threads.
+     *
+     * @return Maximum number of threads, 0 if the budget is disabled.
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns whether the budget is enabled.
+     *
+     * @return True if enabled, false otherwise.
+     */
+    boolean isEnabled() {
+        return limit > 0;
+    }
+
+    /**
+     * Returns the number of threads which are currently handed out.
+     *
+     * @return Number of threads.
+     */
+    int getUsed() {
+        return used.get();
+    }
+
+    /**
+     * Takes threads for one call. Never blocks: if the budget is used up, the call gets one thread, which is the
+     * calling thread itself. The threads must be given back with {@link #release(int)}.
+     *
+     * @param lanes Number of lanes of the call.
+     * @return Number of threads to use for the call, between 1 and {@code lanes}.
+     */
+    int acquire(int lanes) {
+        int max = limit;
+        if (max <= 0) {
+            // Counted anyway, the budget may be enabled before the threads are given back
+            used.addAndGet(lanes);
+            return lanes;
+        }
+
+        while (true) {
+            int current = used.get();
+            int threads = Math.max(1, Math.min(lanes, max - current));
+            if (used.compareAndSet(current, current + threads)) {
+                return threads;
+            }
+        }
+    }
+
+    /**
+     * Gives back the threads which have been taken by {@link #acquire(int)}.
+     *
+     * @param threads Number of threads.
+     */
+    void release(int threads) {
+        used.addAndGet(-threads);
+    }
+}
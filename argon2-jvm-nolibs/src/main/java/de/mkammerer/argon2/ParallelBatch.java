@@ -0,0 +1,169 @@
+package de.mkammerer.argon2;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Hashes and verifies big lists of passwords on all CPUs.
+ * <p>
+ * The list is split into chunks, and every password of a chunk is passed to
+ * {@link Argon2#hash(int, int, int, byte[])} or {@link Argon2#verify(String, byte[])}, so wrappers see one call per
+ * password. The chunks run on a shared pool with one daemon thread per available processor. The calling thread runs chunks, too, so a saturated pool can't dead
+ * lock.
+ */
+final class ParallelBatch {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Number of chunks per thread. More chunks balance the work better if some passwords take longer.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelBatch() {
+    }
+
+    /**
+     * Hashes the passwords in parallel.
+     *
+     * @param argon2      Instance which hashes the chunks.
+     * @param iterations  Number of iterations
+     * @param memory      Sets memory usage to x kibibytes
+     * @param parallelism Number of threads and compute lanes
+     * @param passwords   Passwords, encoded as UTF-8.
+     * @return Hashes, in the same order as the passwords.
+     */
+    static String[] hashAll(final Argon2Advanced argon2, final int iterations, final int memory, final int parallelism,
+                            final List<char[]> passwords) {
+        final char[][] pwds = toArray(passwords);
+        final String[] result = new String[pwds.length];
+
+        run(pwds.length, new Chunk() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    byte[] bytes = AbstractArgon2.toByteArray(pwds[i], UTF_8);
+                    try {
+                        result[i] = argon2.hash(iterations, memory, parallelism, bytes);
+                    } finally {
+                        Arrays.fill(bytes, (byte) 0);
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Verifies the passwords in parallel.
+     *
+     * @param argon2    Instance which verifies the chunks.
+     * @param hashes    Hashes.
+     * @param passwords Passwords, encoded as UTF-8.
+     * @return For every password true if it matches its hash, false otherwise.
+     */
+    static boolean[] verifyAll(final Argon2Advanced argon2, List<String> hashes, List<char[]> passwords) {
+        if (hashes.size() != passwords.size()) {
+            throw new IllegalArgumentException("hashes and passwords must have the same length");
+        }
+        final String[] hashArray = hashes.toArray(new String[hashes.size()]);
+        final char[][] pwds = toArray(passwords);
+        final boolean[] result = new boolean[pwds.length];
+
+        run(pwds.length, new Chunk() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    byte[] bytes = AbstractArgon2.toByteArray(pwds[i], UTF_8);
+                    try {
+                        result[i] = argon2.verify(hashArray[i], bytes);
+                    } finally {
+                        Arrays.fill(bytes, (byte) 0);
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Splits {@code count} items into chunks and runs them in parallel. Returns after all chunks are done.
+     */
+    private static void run(int count, final Chunk chunk) {
+        if (count == 0) {
+            return;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkSize = Math.max(1, (count + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD));
+        if (threads == 1 || chunkSize >= count) {
+            chunk.run(0, count);
+            return;
+        }
+
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+        for (int from = 0; from < count; from += chunkSize) {
+            final int start = from;
+            final int end = Math.min(from + chunkSize, count);
+            FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+                    chunk.run(start, end);
+                }
+            }, null);
+            tasks.add(task);
+            try {
+                ExecutorHolder.EXECUTOR.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The task is run by the calling thread below
+            }
+        }
+
+        RuntimeException failure = null;
+        for (FutureTask<Void> task : tasks) {
+            // Does nothing if a pool thread has already started the task
+            task.run();
+            try {
+                Futures.awaitUninterruptibly(task);
+            } catch (RuntimeException e) {
+                // Wait for the other chunks, they still read the passwords
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static char[][] toArray(List<char[]> passwords) {
+        char[][] result = passwords.toArray(new char[passwords.size()][]);
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] == null) {
+                throw new NullPointerException("passwords[" + i + "] is null");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Processes the items from {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    private interface Chunk {
+        void run(int from, int to);
+    }
+
+    /**
+     * Lazy holder for the pool.
+     */
+    private static final class ExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("argon2-batch-"));
+    }
+}
@@ -0,0 +1,41 @@
+package de.mkammerer.argon2;
+
+/**
+ * Result of {@link Argon2#verifyAndRehash(String, char[], int, int, int)}.
+ */
+public final class RehashResult {
+    private final boolean valid;
+    private final String newHash;
+
+    RehashResult(boolean valid, String newHash) {
+        this.valid = valid;
+        this.newHash = newHash;
+    }
+
+    /**
+     * Returns whether the password matches the hash.
+     *
+     * @return True if the password matches the hash, false otherwise.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Returns whether the hash has been replaced, because it doesn't meet the target parameters.
+     *
+     * @return True if {@link #getNewHash()} returns a new hash, false otherwise.
+     */
+    public boolean isRehashed() {
+        return newHash != null;
+    }
+
+    /**
+     * Returns the new hash of the password, which should replace the stored hash.
+     *
+     * @return New hash, or null if the password doesn't match or the hash meets the target parameters.
+     */
+    public String getNewHash() {
+        return newHash;
+    }
+}
@@ -0,0 +1,258 @@
+package de.mkammerer.argon2;
+
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import de.mkammerer.argon2.jna.CLibrary;
+import de.mkammerer.argon2.jna.Size_t;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Holds a password in native memory, outside of the Java heap.
+ * <p>
+ * Passwords in a {@code String}, {@code char[]} or {@code byte[]} live on the heap, where the garbage collector may
+ * copy them around and where they end up in heap dumps. A secret buffer encodes the characters straight into native
+ * memory, without a {@code byte[]} in between, and libargon2 reads the password from there. On Linux, the memory is
+ * locked with {@code mlock}, so it isn't swapped out. Locking fails if {@code RLIMIT_MEMLOCK} has been reached, see
+ * {@link #isLocked()}.
+ * <p>
+ * Hashing or verifying the password consumes it: libargon2 wipes it right after it has been hashed, and the buffer is
+ * empty afterwards. It can be filled again for the next password. Close the buffer to wipe and free the memory.
+ * This class is not thread safe.
+ */
+public final class SecretBuffer implements Closeable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int capacity;
+    private final CharsetEncoder encoder;
+    private final Pointer pointer;
+    private final boolean mapped;
+    private final boolean locked;
+
+    /**
+     * View of the native memory, the position is the length of the encoded password.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * High surrogate at the end of the last append, which is encoded together with the next character. 0 if there is
+     * none.
+     */
+    private char pendingSurrogate;
+
+    private boolean closed;
+
+    /**
+     * Constructor. The password is encoded as UTF-8.
+     *
+     * @param capacity Maximum length of the encoded password in bytes.
+     */
+    public SecretBuffer(int capacity) {
+        this(capacity, UTF_8);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Maximum length of the encoded password in bytes.
+     * @param charset  Charset of the password.
+     */
+    public SecretBuffer(int capacity, Charset charset) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+
+        this.capacity = capacity;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        Pointer mapping = HugePages.isSupportedPlatform() ? map(capacity) : null;
+        if (mapping != null) {
+            this.pointer = mapping;
+            this.mapped = true;
+            this.locked = CLibrary.INSTANCE.mlock(mapping, new Size_t(capacity)) == 0;
+        } else {
+            this.pointer = new Memory(capacity);
+            this.mapped = false;
+            this.locked = false;
+        }
+        this.buffer = pointer.getByteBuffer(0, capacity);
+    }
+
+    /**
+     * Appends characters to the password.
+     * <p>
+     * If the characters don't fit, the buffer is wiped and an {@link IllegalArgumentException} is thrown.
+     *
+     * @param chars Characters. The array isn't wiped.
+     * @return This buffer.
+     */
+    public SecretBuffer append(char[] chars) {
+        return append(CharBuffer.wrap(chars));
+    }
+
+    /**
+     * Appends the remaining characters of a buffer to the password. The position of the buffer is moved to its limit.
+     * <p>
+     * If the characters don't fit, the buffer is wiped and an {@link IllegalArgumentException} is thrown.
+     *
+     * @param chars Characters. The buffer isn't wiped.
+     * @return This buffer.
+     */
+    public SecretBuffer append(CharBuffer chars) {
+        checkOpen();
+
+        if (pendingSurrogate != 0 && chars.hasRemaining()) {
+            char[] pair = {pendingSurrogate, chars.get()};
+            pendingSurrogate = 0;
+            try {
+                encode(CharBuffer.wrap(pair));
+            } finally {
+                Arrays.fill(pair, (char) 0);
+            }
+        }
+        encode(chars);
+        return this;
+    }
+
+    /**
+     * Returns the length of the encoded password.
+     *
+     * @return Length in bytes.
+     */
+    public int length() {
+        return buffer.position();
+    }
+
+    /**
+     * Returns the maximum length of the encoded password.
+     *
+     * @return Capacity in bytes.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns whether the memory is locked into RAM.
+     *
+     * @return True if the memory can't be swapped out, false otherwise.
+     */
+    public boolean isLocked() {
+        return locked;
+    }
+
+    /**
+     * Wipes the password. The buffer can be filled again afterwards.
+     */
+    public void clear() {
+        checkOpen();
+
+        pointer.setMemory(0, capacity, (byte) 0);
+        buffer.clear();
+        encoder.reset();
+        pendingSurrogate = 0;
+    }
+
+    /**
+     * Wipes the password and frees the memory. Does nothing if the buffer has already been closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        clear();
+        closed = true;
+
+        if (mapped) {
+            if (locked) {
+                CLibrary.INSTANCE.munlock(pointer, new Size_t(capacity));
+            }
+            CLibrary.INSTANCE.munmap(pointer, new Size_t(capacity));
+        } else {
+            ((Memory) pointer).close();
+        }
+    }
+
+    /**
+     * Finishes the encoding and returns the address of the password. Its length is {@link #length()}.
+     *
+     * @return Address of the password.
+     */
+    Pointer pointer() {
+        finish();
+        return pointer;
+    }
+
+    /**
+     * Finishes the encoding and returns a view of the password.
+     *
+     * @return Direct buffer from 0 to {@link #length()}.
+     */
+    ByteBuffer buffer() {
+        finish();
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view;
+    }
+
+    private void encode(CharBuffer chars) {
+        CoderResult result = encoder.encode(chars, buffer, false);
+        if (result.isOverflow()) {
+            clear();
+            throw new IllegalArgumentException("password must not be longer than " + capacity + " bytes");
+        }
+        if (chars.hasRemaining()) {
+            // The encoder keeps a trailing high surrogate until it sees the next character
+            pendingSurrogate = chars.get();
+        }
+    }
+
+    /**
+     * Encodes a trailing high surrogate, which has no low surrogate, as a replacement.
+     */
+    private void finish() {
+        checkOpen();
+
+        CharBuffer rest = pendingSurrogate != 0 ? CharBuffer.wrap(new char[]{pendingSurrogate}) : CharBuffer.allocate(0);
+        pendingSurrogate = 0;
+        if (encoder.encode(rest, buffer, true).isOverflow() || encoder.flush(buffer).isOverflow()) {
+            clear();
+            throw new IllegalArgumentException("password must not be longer than " + capacity + " bytes");
+        }
+        encoder.reset();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("SecretBuffer has been closed");
+        }
+    }
+
+    /**
+     * Maps anonymous memory, so the locked pages don't contain other data.
+     *
+     * @return Address of the mapping, or null if the memory couldn't be mapped.
+     */
+    private static Pointer map(int capacity) {
+        Pointer pointer;
+        try {
+            pointer = CLibrary.INSTANCE.mmap(null, new Size_t(capacity), CLibrary.PROT_READ | CLibrary.PROT_WRITE, CLibrary.MAP_PRIVATE | CLibrary.MAP_ANONYMOUS, -1, new NativeLong(0));
+        } catch (LinkageError e) {
+            // C library can't be loaded
+            return null;
+        }
+        if (pointer == null || Pointer.nativeValue(pointer) == CLibrary.MAP_FAILED) {
+            return null;
+        }
+        return pointer;
+    }
+}
@@ -0,0 +1,125 @@
+package de.mkammerer.argon2;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the native calls of virtual threads on platform threads.
+ * <p>
+ * A virtual thread which calls native code can't be unmounted, so it pins its carrier thread for the whole hash. The
+ * carriers are few (one per CPU by default), so a handful of concurrent hashes stall all other virtual threads. If
+ * enabled, calls from virtual threads are handed to a small pool of platform threads, and the virtual thread parks -
+ * which frees its carrier - until the result is there. Calls from platform threads run directly.
+ * <p>
+ * Virtual threads exist since Java 21, they are detected through reflection.
+ */
+final class VirtualThreadOffload {
+    /**
+     * {@code Thread.isVirtual()}, null before Java 21.
+     */
+    private static final Method IS_VIRTUAL = findIsVirtual();
+
+    private static final Object LOCK = new Object();
+
+    /**
+     * Number of platform threads, 0 if disabled. Guarded by {@link #LOCK} for writes.
+     */
+    private static volatile int threads;
+
+    /**
+     * Created when enabled for the first time. Guarded by {@link #LOCK}.
+     */
+    private static ThreadPoolExecutor executor;
+
+    private VirtualThreadOffload() {
+    }
+
+    /**
+     * Sets the number of platform threads which run the native calls of virtual threads.
+     *
+     * @param threads Number of threads, 0 disables the offloading.
+     */
+    static void setThreads(int threads) {
+        if (threads < 0) throw new IllegalArgumentException("threads must be >= 0");
+
+        synchronized (LOCK) {
+            if (threads > 0) {
+                if (executor == null) {
+                    executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("argon2-offload-"));
+                } else if (threads > executor.getMaximumPoolSize()) {
+                    executor.setMaximumPoolSize(threads);
+                    executor.setCorePoolSize(threads);
+                } else {
+                    executor.setCorePoolSize(threads);
+                    executor.setMaximumPoolSize(threads);
+                }
+            }
+            VirtualThreadOffload.threads = threads;
+        }
+    }
+
+    /**
+     * Returns the number of platform threads which run the native calls of virtual threads.
+     *
+     * @return Number of threads, 0 if disabled.
+     */
+    static int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns whether the current call should be offloaded.
+     *
+     * @return True if enabled and the current thread is virtual, false otherwise.
+     */
+    static boolean isNeeded() {
+        return threads > 0 && isVirtual(Thread.currentThread());
+    }
+
+    /**
+     * Runs the task on a platform thread and parks the current thread until it's done.
+     * <p>
+     * A native call can't be stopped, and it may still read the caller's arrays. So if the current thread is
+     * interrupted, it keeps waiting for the result and is interrupted again afterwards.
+     *
+     * @param task Task.
+     * @param <T>  Type of the result.
+     * @return Result of the task.
+     */
+    static <T> T call(Callable<T> task) {
+        ThreadPoolExecutor current;
+        synchronized (LOCK) {
+            current = executor;
+        }
+        return Futures.awaitUninterruptibly(current.submit(task));
+    }
+
+    /**
+     * Returns whether the given thread is a virtual thread.
+     *
+     * @param thread Thread.
+     * @return True if virtual, false otherwise or before Java 21.
+     */
+    static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static Method findIsVirtual() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package de.mkammerer.argon2.jna;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Pointer;
+
+/**
+ * allocate_fptr type for C interaction, the memory allocator of {@link Argon2_context#allocate_cbk}.
+ */
+public interface Allocate_fptr extends Callback {
+    /**
+     * Allocates memory.
+     *
+     * @param memory          Pointer to the pointer which must be set to the allocated memory.
+     * @param bytesToAllocate Number of bytes to allocate.
+     * @return {@link Argon2Library#ARGON2_OK} or an error code.
+     */
+    int invoke(Pointer memory, Size_t bytesToAllocate);
+}
@@ -1,7 +1,6 @@
 package de.mkammerer.argon2.jna;
 
 import com.sun.jna.Library;
-import com.sun.jna.Native;
 
 /**
  * JNA bindings for Argon2.
@@ -9,14 +8,33 @@ import com.sun.jna.Native;
 public interface Argon2Library extends Library {
     /**
      * Singleton instance.
+     *
+     * @see Argon2LibraryLoader
      */
-    Argon2Library INSTANCE = Native.load("argon2", Argon2Library.class);
+    Argon2Library INSTANCE = Argon2LibraryLoader.load();
 
     /**
      * Return code if everything is okay.
      */
     int ARGON2_OK = 0;
 
+    /**
+     * Return code if memory allocation failed.
+     */
+    int ARGON2_MEMORY_ALLOCATION_ERROR = -22;
+
+    /**
+     * Flag for {@link Argon2_context#flags}: libargon2 wipes the password once it has been hashed and sets its length
+     * to 0.
+     */
+    int ARGON2_FLAG_CLEAR_PASSWORD = 1;
+
+    /**
+     * Flag for {@link Argon2_context#flags}: libargon2 wipes the secret once it has been hashed and sets its length
+     * to 0.
+     */
+    int ARGON2_FLAG_CLEAR_SECRET = 1 << 1;
+
     /*
     int argon2i_hash_encoded(const uint32_t t_cost, const uint32_t m_cost,
                          const uint32_t parallelism, const void *pwd,
@@ -0,0 +1,41 @@
+package de.mkammerer.argon2.jna;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Loads the Argon2 library.
+ * <p>
+ * The library is either the one bundled with {@code argon2-jvm} or the one installed on the system.
+ */
+public final class Argon2LibraryLoader {
+    /**
+     * Name of the library.
+     */
+    private static final String LIBRARY_NAME = "argon2";
+
+    private Argon2LibraryLoader() {
+    }
+
+    /**
+     * Returns the library which is used by {@link Argon2Library#INSTANCE}. Loads the library if it hasn't been loaded
+     * yet.
+     *
+     * @return Loaded library.
+     */
+    public static NativeLibrary getNativeLibrary() {
+        return ((Library.Handler) Proxy.getInvocationHandler(Argon2Library.INSTANCE)).getNativeLibrary();
+    }
+
+    /**
+     * Loads the library.
+     *
+     * @return Loaded library.
+     */
+    static Argon2Library load() {
+        return Native.load(LIBRARY_NAME, Argon2Library.class);
+    }
+}
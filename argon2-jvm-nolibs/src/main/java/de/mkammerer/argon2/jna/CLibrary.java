@@ -0,0 +1,99 @@
+package de.mkammerer.argon2.jna;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * Functions of the C library for mapping and locking memory. Only used on Linux.
+ */
+public interface CLibrary extends Library {
+    /**
+     * Singleton instance.
+     */
+    CLibrary INSTANCE = Native.load(Platform.C_LIBRARY_NAME, CLibrary.class);
+
+    int PROT_READ = 0x1;
+    int PROT_WRITE = 0x2;
+    int MAP_PRIVATE = 0x02;
+    int MAP_ANONYMOUS = 0x20;
+    int MAP_HUGETLB = 0x40000;
+    int MADV_HUGEPAGE = 14;
+
+    /**
+     * Return value of {@link #mmap} if the mapping failed.
+     */
+    long MAP_FAILED = -1;
+
+    /*
+    void *mmap(void *addr, size_t length, int prot, int flags, int fd, off_t offset);
+     */
+
+    /**
+     * Maps memory.
+     *
+     * @param addr   Address hint, or null.
+     * @param length Length in bytes.
+     * @param prot   Protection, e.g. {@link #PROT_READ}.
+     * @param flags  Flags, e.g. {@link #MAP_ANONYMOUS}.
+     * @param fd     File descriptor, -1 for anonymous memory.
+     * @param offset Offset in the file.
+     * @return Address of the mapping, {@link #MAP_FAILED} on error.
+     */
+    Pointer mmap(Pointer addr, Size_t length, int prot, int flags, int fd, NativeLong offset);
+
+    /*
+    int munmap(void *addr, size_t length);
+     */
+
+    /**
+     * Unmaps memory.
+     *
+     * @param addr   Address of the mapping.
+     * @param length Length in bytes.
+     * @return 0 if successful, -1 on error.
+     */
+    int munmap(Pointer addr, Size_t length);
+
+    /*
+    int madvise(void *addr, size_t length, int advice);
+     */
+
+    /**
+     * Gives the kernel advice about the use of memory.
+     *
+     * @param addr   Address, aligned to the page size.
+     * @param length Length in bytes.
+     * @param advice Advice, e.g. {@link #MADV_HUGEPAGE}.
+     * @return 0 if successful, -1 on error.
+     */
+    int madvise(Pointer addr, Size_t length, int advice);
+
+    /*
+    int mlock(const void *addr, size_t len);
+     */
+
+    /**
+     * Locks memory into RAM, so it isn't swapped out.
+     *
+     * @param addr   Address.
+     * @param length Length in bytes.
+     * @return 0 if successful, -1 on error, e.g. if {@code RLIMIT_MEMLOCK} has been reached.
+     */
+    int mlock(Pointer addr, Size_t length);
+
+    /*
+    int munlock(const void *addr, size_t len);
+     */
+
+    /**
+     * Unlocks memory which has been locked by {@link #mlock}.
+     *
+     * @param addr   Address.
+     * @param length Length in bytes.
+     * @return 0 if successful, -1 on error.
+     */
+    int munlock(Pointer addr, Size_t length);
+}
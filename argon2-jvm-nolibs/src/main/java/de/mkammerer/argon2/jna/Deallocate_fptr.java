@@ -0,0 +1,17 @@
+package de.mkammerer.argon2.jna;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Pointer;
+
+/**
+ * deallocate_fptr type for C interaction, the memory deallocator of {@link Argon2_context#free_cbk}.
+ */
+public interface Deallocate_fptr extends Callback {
+    /**
+     * Frees memory which has been allocated by the matching {@link Allocate_fptr}.
+     *
+     * @param memory          Allocated memory.
+     * @param bytesToAllocate Number of bytes which have been allocated.
+     */
+    void invoke(Pointer memory, Size_t bytesToAllocate);
+}
@@ -0,0 +1,348 @@
+package de.mkammerer.argon2;
+
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Pointer;
+import de.mkammerer.argon2.jna.Argon2LibraryLoader;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.foreign.MemoryLayout.PathElement.groupElement;
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * Calls the native Argon2 library through the foreign function and memory API.
+ * <p>
+ * Unlike the JNA interface proxy, the downcall handles need no reflection and no boxing of the arguments. All
+ * arguments are copied into memory segments of a confined arena, which are wiped before the arena is closed.
+ * <p>
+ * The library is the one which has been loaded by {@link Argon2LibraryLoader}, the addresses of the functions are taken
+ * from JNA. The binding is only used if native access is enabled for this module, otherwise creating the downcall
+ * handles would print a warning about restricted methods. Only 64 bit platforms are supported.
+ */
+final class ForeignArgon2Binding implements Argon2Binding {
+    /**
+     * Return code if everything is okay.
+     */
+    private static final int ARGON2_OK = 0;
+
+    private ForeignArgon2Binding() {
+    }
+
+    /**
+     * Creates the binding. Called by {@link BaseArgon2} through reflection.
+     *
+     * @return Binding, or null if native access isn't enabled or the library can't be called through the binding.
+     */
+    static Argon2Binding create() {
+        if (!ForeignArgon2Binding.class.getModule().isNativeAccessEnabled()) {
+            return null;
+        }
+        return Handles.AVAILABLE ? new ForeignArgon2Binding() : null;
+    }
+
+    @Override
+    public int hash(Argon2Factory.Argon2Types type, Argon2Version version, int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, byte[] hash, int hashLength, byte[] encoded) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pwdSegment = copyOf(arena, pwd);
+            MemorySegment saltSegment = copyOf(arena, salt);
+            MemorySegment hashSegment = hash == null ? MemorySegment.NULL : arena.allocate(hashLength);
+            MemorySegment encodedSegment = encoded == null ? MemorySegment.NULL : arena.allocate(encoded.length);
+            try {
+                int result = (int) Handles.ARGON2_HASH.invokeExact(iterations, memory, parallelism,
+                        pwdSegment, (long) pwd.length, saltSegment, (long) salt.length, hashSegment, (long) hashLength,
+                        encodedSegment, encodedSegment.byteSize(), type.getIndex(), version.getVersion());
+                if (result == ARGON2_OK) {
+                    copyTo(hashSegment, hash);
+                    copyTo(encodedSegment, encoded);
+                }
+                return result;
+            } catch (Throwable e) {
+                throw rethrow(e);
+            } finally {
+                wipe(pwdSegment, saltSegment, hashSegment);
+            }
+        }
+    }
+
+    @Override
+    public int verify(Argon2Factory.Argon2Types type, String encoded, byte[] pwd) {
+        try (Arena arena = Arena.ofConfined()) {
+            byte[] encodedBytes = encoded.getBytes(StandardCharsets.US_ASCII);
+            // encoded needs to be null terminated for strlen to work
+            MemorySegment encodedSegment = arena.allocate(encodedBytes.length + 1L);
+            MemorySegment.copy(encodedBytes, 0, encodedSegment, JAVA_BYTE, 0, encodedBytes.length);
+            encodedSegment.set(JAVA_BYTE, encodedBytes.length, (byte) 0);
+            MemorySegment pwdSegment = copyOf(arena, pwd);
+            try {
+                return (int) Handles.ARGON2_VERIFY.invokeExact(encodedSegment, pwdSegment, (long) pwd.length, type.getIndex());
+            } catch (Throwable e) {
+                throw rethrow(e);
+            } finally {
+                wipe(pwdSegment);
+            }
+        }
+    }
+
+    @Override
+    public int ctx(Argon2Factory.Argon2Types type, Argon2Version version, int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, byte[] secret, byte[] associatedData, byte[] hash) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment out = arena.allocate(hash.length);
+            MemorySegment pwdSegment = copyOf(arena, pwd);
+            MemorySegment saltSegment = copyOf(arena, salt);
+            MemorySegment secretSegment = copyOfNullable(arena, secret);
+            MemorySegment adSegment = copyOfNullable(arena, associatedData);
+            MemorySegment context = buildContext(arena, version, iterations, memory, parallelism, out, pwdSegment,
+                    saltSegment, secretSegment, adSegment);
+            try {
+                int result = (int) Handles.ARGON2_CTX.invokeExact(context, type.getIndex());
+                if (result == ARGON2_OK) {
+                    copyTo(out, hash);
+                }
+                return result;
+            } catch (Throwable e) {
+                throw rethrow(e);
+            } finally {
+                wipe(out, pwdSegment, saltSegment, secretSegment, adSegment);
+            }
+        }
+    }
+
+    @Override
+    public int verifyCtx(Argon2Factory.Argon2Types type, Argon2Version version, int iterations, int memory, int parallelism, byte[] pwd, byte[] salt, byte[] secret, byte[] associatedData, byte[] hash) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment out = arena.allocate(hash.length);
+            MemorySegment pwdSegment = copyOf(arena, pwd);
+            MemorySegment saltSegment = copyOf(arena, salt);
+            MemorySegment secretSegment = copyOfNullable(arena, secret);
+            MemorySegment adSegment = copyOfNullable(arena, associatedData);
+            MemorySegment context = buildContext(arena, version, iterations, memory, parallelism, out, pwdSegment,
+                    saltSegment, secretSegment, adSegment);
+            MemorySegment expected = copyOf(arena, hash);
+            try {
+                return (int) Handles.ARGON2_VERIFY_CTX.invokeExact(context, expected, type.getIndex());
+            } catch (Throwable e) {
+                throw rethrow(e);
+            } finally {
+                wipe(out, pwdSegment, saltSegment, secretSegment, adSegment);
+            }
+        }
+    }
+
+    @Override
+    public int encodedLength(Argon2Factory.Argon2Types type, int iterations, int memory, int parallelism, int saltLength, int hashLength) {
+        try {
+            return (int) (long) Handles.ARGON2_ENCODEDLEN.invokeExact(iterations, memory, parallelism, saltLength, hashLength, type.getIndex());
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public String errorMessage(int errorCode) {
+        try {
+            MemorySegment message = (MemorySegment) Handles.ARGON2_ERROR_MESSAGE.invokeExact(errorCode);
+            return message.reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.US_ASCII);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static MemorySegment buildContext(Arena arena, Argon2Version version, int iterations, int memory, int parallelism, MemorySegment out, MemorySegment pwd, MemorySegment salt, MemorySegment secret, MemorySegment associatedData) {
+        MemorySegment context = arena.allocate(Handles.CONTEXT);
+
+        context.set(ADDRESS, Handles.OUT, out);
+        context.set(JAVA_INT, Handles.OUTLEN, (int) out.byteSize());
+        context.set(ADDRESS, Handles.PWD, pwd);
+        context.set(JAVA_INT, Handles.PWDLEN, (int) pwd.byteSize());
+        context.set(ADDRESS, Handles.SALT, salt);
+        context.set(JAVA_INT, Handles.SALTLEN, (int) salt.byteSize());
+        context.set(ADDRESS, Handles.SECRET, secret);
+        context.set(JAVA_INT, Handles.SECRETLEN, (int) secret.byteSize());
+        context.set(ADDRESS, Handles.AD, associatedData);
+        context.set(JAVA_INT, Handles.ADLEN, (int) associatedData.byteSize());
+        context.set(JAVA_INT, Handles.T_COST, iterations);
+        context.set(JAVA_INT, Handles.M_COST, memory);
+
+        // lanes and threads properties are set similar to the argon2.h c library function int argon_hash(...)
+        context.set(JAVA_INT, Handles.LANES, parallelism);
+        context.set(JAVA_INT, Handles.THREADS, parallelism);
+
+        context.set(JAVA_INT, Handles.VERSION, version.getVersion());
+
+        // Setting this to null means that argon2 uses internal memory management
+        context.set(ADDRESS, Handles.ALLOCATE_CBK, MemorySegment.NULL);
+        context.set(ADDRESS, Handles.FREE_CBK, MemorySegment.NULL);
+
+        context.set(JAVA_INT, Handles.FLAGS, 0);
+
+        return context;
+    }
+
+    private static MemorySegment copyOf(Arena arena, byte[] data) {
+        MemorySegment segment = arena.allocate(data.length);
+        MemorySegment.copy(data, 0, segment, JAVA_BYTE, 0, data.length);
+        return segment;
+    }
+
+    private static MemorySegment copyOfNullable(Arena arena, byte[] data) {
+        return data == null ? MemorySegment.NULL : copyOf(arena, data);
+    }
+
+    private static void copyTo(MemorySegment segment, byte[] data) {
+        if (data != null) {
+            MemorySegment.copy(segment, JAVA_BYTE, 0, data, 0, data.length);
+        }
+    }
+
+    private static void wipe(MemorySegment... segments) {
+        for (MemorySegment segment : segments) {
+            segment.fill((byte) 0);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+
+    /**
+     * Layout and downcall handles. Initialized on first use, so nothing is linked unless native access is enabled.
+     */
+    private static final class Handles {
+        /**
+         * Layout of {@code argon2_context}.
+         */
+        static final StructLayout CONTEXT = struct(
+                ADDRESS.withName("out"), JAVA_INT.withName("outlen"),
+                ADDRESS.withName("pwd"), JAVA_INT.withName("pwdlen"),
+                ADDRESS.withName("salt"), JAVA_INT.withName("saltlen"),
+                ADDRESS.withName("secret"), JAVA_INT.withName("secretlen"),
+                ADDRESS.withName("ad"), JAVA_INT.withName("adlen"),
+                JAVA_INT.withName("t_cost"), JAVA_INT.withName("m_cost"),
+                JAVA_INT.withName("lanes"), JAVA_INT.withName("threads"),
+                JAVA_INT.withName("version"),
+                ADDRESS.withName("allocate_cbk"), ADDRESS.withName("free_cbk"),
+                JAVA_INT.withName("flags")
+        );
+
+        static final long OUT = offset("out");
+        static final long OUTLEN = offset("outlen");
+        static final long PWD = offset("pwd");
+        static final long PWDLEN = offset("pwdlen");
+        static final long SALT = offset("salt");
+        static final long SALTLEN = offset("saltlen");
+        static final long SECRET = offset("secret");
+        static final long SECRETLEN = offset("secretlen");
+        static final long AD = offset("ad");
+        static final long ADLEN = offset("adlen");
+        static final long T_COST = offset("t_cost");
+        static final long M_COST = offset("m_cost");
+        static final long LANES = offset("lanes");
+        static final long THREADS = offset("threads");
+        static final long VERSION = offset("version");
+        static final long ALLOCATE_CBK = offset("allocate_cbk");
+        static final long FREE_CBK = offset("free_cbk");
+        static final long FLAGS = offset("flags");
+
+        private static final NativeLibrary LIBRARY = loadLibrary();
+
+        static final MethodHandle ARGON2_HASH = downcall("argon2_hash", FunctionDescriptor.of(JAVA_INT,
+                JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS, JAVA_LONG, ADDRESS, JAVA_LONG, ADDRESS, JAVA_LONG, ADDRESS, JAVA_LONG,
+                JAVA_INT, JAVA_INT));
+
+        static final MethodHandle ARGON2_VERIFY = downcall("argon2_verify", FunctionDescriptor.of(JAVA_INT,
+                ADDRESS, ADDRESS, JAVA_LONG, JAVA_INT));
+
+        static final MethodHandle ARGON2_CTX = downcall("argon2_ctx", FunctionDescriptor.of(JAVA_INT,
+                ADDRESS, JAVA_INT));
+
+        static final MethodHandle ARGON2_VERIFY_CTX = downcall("argon2_verify_ctx", FunctionDescriptor.of(JAVA_INT,
+                ADDRESS, ADDRESS, JAVA_INT));
+
+        static final MethodHandle ARGON2_ENCODEDLEN = downcall("argon2_encodedlen", FunctionDescriptor.of(JAVA_LONG,
+                JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT));
+
+        static final MethodHandle ARGON2_ERROR_MESSAGE = downcall("argon2_error_message", FunctionDescriptor.of(ADDRESS,
+                JAVA_INT));
+
+        static final boolean AVAILABLE = ARGON2_HASH != null && ARGON2_VERIFY != null && ARGON2_CTX != null
+                && ARGON2_VERIFY_CTX != null && ARGON2_ENCODEDLEN != null && ARGON2_ERROR_MESSAGE != null;
+
+        private Handles() {
+        }
+
+        private static long offset(String field) {
+            return CONTEXT.byteOffset(groupElement(field));
+        }
+
+        /**
+         * Creates a struct layout with the given fields, padded like a C compiler does.
+         *
+         * @param fields Fields.
+         * @return Struct layout.
+         */
+        private static StructLayout struct(MemoryLayout... fields) {
+            List<MemoryLayout> members = new ArrayList<>();
+            long offset = 0;
+            long alignment = 1;
+            for (MemoryLayout field : fields) {
+                long padding = (field.byteAlignment() - offset % field.byteAlignment()) % field.byteAlignment();
+                if (padding > 0) {
+                    members.add(MemoryLayout.paddingLayout(padding));
+                    offset += padding;
+                }
+                members.add(field);
+                offset += field.byteSize();
+                alignment = Math.max(alignment, field.byteAlignment());
+            }
+            long padding = (alignment - offset % alignment) % alignment;
+            if (padding > 0) {
+                members.add(MemoryLayout.paddingLayout(padding));
+            }
+            return MemoryLayout.structLayout(members.toArray(new MemoryLayout[0]));
+        }
+
+        private static NativeLibrary loadLibrary() {
+            // size_t is mapped to long
+            if (ADDRESS.byteSize() != 8) {
+                return null;
+            }
+            try {
+                return Argon2LibraryLoader.getNativeLibrary();
+            } catch (LinkageError e) {
+                // The library can't be loaded. Let the JNA binding report the error
+                return null;
+            }
+        }
+
+        private static MethodHandle downcall(String name, FunctionDescriptor descriptor) {
+            if (LIBRARY == null) {
+                return null;
+            }
+            try {
+                MemorySegment function = MemorySegment.ofAddress(Pointer.nativeValue(LIBRARY.getFunction(name)));
+                return Linker.nativeLinker().downcallHandle(function, descriptor);
+            } catch (UnsatisfiedLinkError e) {
+                // Function is missing, use the JNA binding
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdaptiveArgon2Test {
+    private final Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+
+    @Test
+    public void testWithoutOverload() {
+        AdaptiveArgon2 adaptive = new AdaptiveArgon2(argon2, 2, 2048, 1, 1024, 1, 1, TimeUnit.MINUTES);
+
+        String hash = adaptive.hash("password".toCharArray());
+        assertThat(hash).startsWith("$argon2id$v=19$m=2048,t=2,p=1$");
+        assertThat(adaptive.isDegraded()).isFalse();
+        assertThat(adaptive.needsRehash(hash)).isFalse();
+        assertThat(adaptive.verify(hash, "password".toCharArray())).isTrue();
+        assertThat(adaptive.verify(hash, "not-the-password".toCharArray())).isFalse();
+    }
+
+    @Test
+    public void testDegradesAndRecovers() throws Exception {
+        // Every hash takes longer than a microsecond, so every hash counts as overload
+        AdaptiveArgon2 adaptive = new AdaptiveArgon2(argon2, 3, 8192, 1, 1024, 1, 1, TimeUnit.MICROSECONDS);
+        String full = adaptive.hash("password".toCharArray());
+        for (int i = 0; i < AdaptiveArgon2.STEPS; i++) {
+            adaptive.hash("password".toCharArray());
+        }
+
+        // The cost doesn't go below the minimum
+        String degraded = adaptive.hash("password".toCharArray());
+        assertThat(degraded).startsWith("$argon2id$v=19$m=1024,t=1,p=1$");
+        assertThat(adaptive.isDegraded()).isTrue();
+        assertThat(adaptive.getCurrentIterations()).isEqualTo(1);
+        assertThat(adaptive.getCurrentMemory()).isEqualTo(1024);
+        assertThat(adaptive.needsRehash(full)).isFalse();
+        assertThat(adaptive.needsRehash(degraded)).isTrue();
+
+        // Under overload, the rehash is put off
+        RehashResult result = adaptive.verifyAndRehash(degraded, "password".toCharArray());
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.isRehashed()).isFalse();
+
+        // After a quiet period, the target cost is back and the degraded hash is upgraded
+        Thread.sleep(1100);
+        result = adaptive.verifyAndRehash(degraded, "password".toCharArray());
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.isRehashed()).isTrue();
+        assertThat(result.getNewHash()).startsWith("$argon2id$v=19$m=8192,t=3,p=1$");
+        assertThat(adaptive.isDegraded()).isFalse();
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        assertThatThrownBy(() -> new AdaptiveArgon2(argon2, 1, 2048, 2, 1024, 1, 1, TimeUnit.SECONDS))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdaptiveArgon2(argon2, 2, 1024, 1, 2048, 1, 1, TimeUnit.SECONDS))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -52,4 +52,18 @@ public class Argon2FactoryTest {
         Argon2 argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
         assertThat(argon2).isInstanceOf(Argon2id.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testJava() {
+        Argon2 argon2 = Argon2Factory.createJava(Argon2Factory.Argon2Types.ARGON2id);
+        assertThat(argon2).isInstanceOf(JavaArgon2.class);
+        assertThat(((JavaArgon2) argon2).getType()).isEqualTo(Argon2Factory.Argon2Types.ARGON2id);
+    }
+
+    @Test
+    public void testJavaAdvanced() {
+        Argon2Advanced argon2 = Argon2Factory.createJavaAdvanced(Argon2Factory.Argon2Types.ARGON2d);
+        assertThat(argon2).isInstanceOf(JavaArgon2.class);
+        assertThat(((JavaArgon2) argon2).getType()).isEqualTo(Argon2Factory.Argon2Types.ARGON2d);
+    }
+}
@@ -0,0 +1,68 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Argon2KeyCacheTest {
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    private final Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+
+    @Test
+    public void testPbkdf() {
+        Argon2KeyCache cache = new Argon2KeyCache(argon2, 10, 1, TimeUnit.MINUTES);
+        byte[] salt = argon2.generateSalt();
+        byte[] expected = argon2.pbkdf(1, 1024, 1, PASSWORD, salt, 32);
+
+        assertThat(cache.pbkdf(1, 1024, 1, PASSWORD, salt, 32)).isEqualTo(expected);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.pbkdf(1, 1024, 1, "password".toCharArray(), StandardCharsets.UTF_8, salt, 32)).isEqualTo(expected);
+        assertThat(cache.size()).isEqualTo(1);
+
+        // Other parameters derive other keys
+        assertThat(cache.pbkdf(1, 1024, 1, PASSWORD, salt, 16)).isEqualTo(argon2.pbkdf(1, 1024, 1, PASSWORD, salt, 16));
+        assertThat(cache.pbkdf(2, 1024, 1, PASSWORD, salt, 32)).isNotEqualTo(expected);
+        assertThat(cache.pbkdf(1, 1024, 1, "not-the-password".getBytes(StandardCharsets.UTF_8), salt, 32)).isNotEqualTo(expected);
+        assertThat(cache.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        Argon2KeyCache cache = new Argon2KeyCache(argon2, 2, 100, TimeUnit.MILLISECONDS);
+        byte[] salt1 = argon2.generateSalt();
+        byte[] salt2 = argon2.generateSalt();
+        byte[] salt3 = argon2.generateSalt();
+
+        cache.pbkdf(1, 1024, 1, PASSWORD, salt1, 32);
+        cache.pbkdf(1, 1024, 1, PASSWORD, salt2, 32);
+        cache.pbkdf(1, 1024, 1, PASSWORD, salt3, 32);
+        assertThat(cache.size()).isEqualTo(2);
+
+        Thread.sleep(150);
+        cache.pbkdf(1, 1024, 1, PASSWORD, salt1, 32);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testInvalidate() {
+        Argon2KeyCache cache = new Argon2KeyCache(argon2, 10, 1, TimeUnit.MINUTES);
+        byte[] salt1 = argon2.generateSalt();
+        byte[] salt2 = argon2.generateSalt();
+
+        cache.pbkdf(1, 1024, 1, PASSWORD, salt1, 32);
+        cache.pbkdf(1, 1024, 1, PASSWORD, salt1, 16);
+        cache.pbkdf(1, 1024, 1, PASSWORD, salt2, 32);
+
+        cache.invalidate(salt1);
+        assertThat(cache.size()).isEqualTo(1);
+        cache.invalidateAll();
+        assertThat(cache.size()).isEqualTo(0);
+
+        assertThatThrownBy(() -> new Argon2KeyCache(argon2, 0, 1, TimeUnit.MINUTES)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
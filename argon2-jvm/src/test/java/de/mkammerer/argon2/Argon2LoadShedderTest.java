@@ -0,0 +1,65 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Argon2LoadShedderTest {
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testWithinDeadline() {
+        Argon2LoadShedder argon2 = new Argon2LoadShedder(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id), 2);
+        assertThat(argon2.estimateHashTime(1, 1024, TimeUnit.NANOSECONDS)).isEqualTo(0);
+
+        String hash = argon2.hash(1, 1024, 1, "password".toCharArray(), 1, TimeUnit.MINUTES);
+        assertThat(argon2.estimateHashTime(1, 1024, TimeUnit.NANOSECONDS)).isGreaterThan(0);
+        assertThat(argon2.verify(hash, PASSWORD, 1, TimeUnit.MINUTES)).isTrue();
+        assertThat(argon2.verify(hash, "not-the-password".toCharArray(), 1, TimeUnit.MINUTES)).isFalse();
+        assertThat(argon2.verify("not-a-hash", PASSWORD, 1, TimeUnit.MINUTES)).isFalse();
+        assertThat(argon2.verify(hash, PASSWORD)).isTrue();
+    }
+
+    @Test
+    public void testDeadlinePassed() {
+        Argon2LoadShedder argon2 = new Argon2LoadShedder(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id), 2);
+        String hash = argon2.hash(1, 1024, 1, PASSWORD);
+        // Hashes of version 1.0 may come without a version
+        String withoutVersion = argon2.hashAdvanced(1, 1024, 1, PASSWORD, argon2.generateSalt(), 16, Argon2Version.V10)
+                .getEncoded().replace("$v=16", "");
+
+        assertThatThrownBy(() -> argon2.verify(hash, PASSWORD, 0, TimeUnit.SECONDS)).isInstanceOf(Argon2DeadlineException.class);
+        assertThatThrownBy(() -> argon2.verify(withoutVersion, PASSWORD, 0, TimeUnit.SECONDS)).isInstanceOf(Argon2DeadlineException.class);
+        assertThatThrownBy(() -> argon2.hash(1, 1024, 1, PASSWORD, -1, TimeUnit.SECONDS)).isInstanceOf(Argon2DeadlineException.class);
+    }
+
+    @Test
+    public void testFailedCallsAreNotLearned() {
+        Argon2LoadShedder argon2 = new Argon2LoadShedder(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id), 2);
+
+        // Too little memory, libargon2 fails right away
+        assertThatThrownBy(() -> argon2.hash(1, 1, 1, PASSWORD)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> argon2.hash(1, 1, 1, PASSWORD, 1, TimeUnit.MINUTES)).isInstanceOf(IllegalStateException.class);
+        assertThat(argon2.estimateHashTime(1, 1024, TimeUnit.NANOSECONDS)).isEqualTo(0);
+    }
+
+    @Test
+    public void testNoSlot() {
+        Argon2LoadShedder argon2 = new Argon2LoadShedder(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id), 1);
+        String hash = argon2.hash(1, 1024, 1, PASSWORD);
+
+        // Another hash runs for a long time
+        argon2.enter(1000, 65536);
+        try {
+            assertThatThrownBy(() -> argon2.verify(hash, PASSWORD, 10, TimeUnit.MILLISECONDS)).isInstanceOf(Argon2DeadlineException.class);
+        } finally {
+            argon2.exit(1000, 65536, 0);
+        }
+
+        assertThat(argon2.verify(hash, PASSWORD, 1, TimeUnit.MINUTES)).isTrue();
+    }
+}
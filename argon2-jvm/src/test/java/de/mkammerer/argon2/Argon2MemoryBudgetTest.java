@@ -0,0 +1,66 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Argon2MemoryBudgetTest {
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testHashAndVerify() {
+        Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+        Argon2MemoryBudget budget = new Argon2MemoryBudget(argon2, 4096, 1, TimeUnit.SECONDS);
+
+        String hash = budget.hash(1, 1024, 1, PASSWORD);
+        assertThat(budget.verify(hash, PASSWORD)).isTrue();
+        assertThat(budget.verify(hash, "not-the-password".getBytes(StandardCharsets.UTF_8))).isFalse();
+        assertThat(budget.verify("not-a-hash", PASSWORD)).isFalse();
+        assertThat(argon2.verify(hash, PASSWORD)).isTrue();
+
+        // More than the budget, runs alone
+        assertThat(budget.verify(argon2.hash(1, 8192, 1, PASSWORD), PASSWORD)).isTrue();
+
+        assertThat(budget.getAvailableMemory()).isEqualTo(4096);
+    }
+
+    @Test
+    public void testRejected() {
+        Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+        Argon2MemoryBudget budget = new Argon2MemoryBudget(argon2, 4096, 10, TimeUnit.MILLISECONDS);
+        String hash = argon2.hash(1, 1024, 1, PASSWORD);
+        // Hashes of version 1.0 may come without a version
+        String withoutVersion = argon2.hashAdvanced(1, 1024, 1, PASSWORD, argon2.generateSalt(), 16, Argon2Version.V10)
+                .getEncoded().replace("$v=16", "");
+
+        // Another hash uses most of the budget
+        budget.enter(1, 3584);
+        try {
+            assertThatThrownBy(() -> budget.verify(hash, PASSWORD)).isInstanceOf(Argon2RejectedException.class);
+            assertThatThrownBy(() -> budget.verify(withoutVersion, PASSWORD)).isInstanceOf(Argon2RejectedException.class);
+            assertThatThrownBy(() -> budget.hash(1, 1024, 1, PASSWORD)).isInstanceOf(Argon2RejectedException.class);
+            assertThat(budget.hash(1, 512, 1, PASSWORD)).startsWith("$argon2id$");
+        } finally {
+            budget.exit(1, 3584, 0);
+        }
+
+        assertThat(budget.verify(hash, PASSWORD)).isTrue();
+        assertThat(budget.verify(withoutVersion, PASSWORD)).isTrue();
+        assertThat(budget.getAvailableMemory()).isEqualTo(4096);
+    }
+
+    @Test
+    public void testHashAll() {
+        Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+        Argon2MemoryBudget budget = new Argon2MemoryBudget(argon2, 4096, 1, TimeUnit.SECONDS);
+
+        String[] hashes = budget.hashAll(1, 1024, 1, Arrays.asList("password".toCharArray(), "password".toCharArray()));
+        assertThat(budget.verifyAll(Arrays.asList(hashes), Arrays.asList("password".toCharArray(), "not-the-password".toCharArray()))).containsExactly(true, false);
+        assertThat(budget.getAvailableMemory()).isEqualTo(4096);
+    }
+}
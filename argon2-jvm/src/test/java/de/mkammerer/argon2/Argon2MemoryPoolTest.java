@@ -0,0 +1,90 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Argon2MemoryPoolTest {
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testSameHashesAsWithoutPool() {
+        Argon2MemoryPool pool = new Argon2MemoryPool(64L << 20, 1, TimeUnit.MINUTES);
+
+        for (Argon2Factory.Argon2Types type : Argon2Factory.Argon2Types.values()) {
+            Argon2Advanced plain = Argon2Factory.createAdvanced(type);
+            Argon2Advanced pooled = Argon2Factory.createAdvanced(type, Argon2Constants.DEFAULT_SALT_LENGTH, Argon2Constants.DEFAULT_HASH_LENGTH, pool);
+            byte[] salt = plain.generateSalt();
+
+            String hash = plain.hash(2, 1024, 2, "password".toCharArray(), StandardCharsets.UTF_8, salt);
+            assertThat(pooled.hash(2, 1024, 2, "password".toCharArray(), StandardCharsets.UTF_8, salt)).isEqualTo(hash);
+            assertThat(pooled.rawHash(2, 1024, 2, PASSWORD, salt)).isEqualTo(plain.rawHash(2, 1024, 2, PASSWORD, salt));
+            assertThat(pooled.verify(hash, PASSWORD)).isTrue();
+            assertThat(pooled.verify(hash, "not-the-password".getBytes(StandardCharsets.UTF_8))).isFalse();
+            assertThat(pooled.verify("not-a-hash", PASSWORD)).isFalse();
+
+            HashResult result = plain.hashAdvanced(2, 1024, 2, PASSWORD, salt, 20, Argon2Version.V10);
+            assertThat(pooled.hashAdvanced(2, 1024, 2, PASSWORD, salt, 20, Argon2Version.V10).getEncoded()).isEqualTo(result.getEncoded());
+            assertThat(pooled.verify(result.getEncoded(), PASSWORD)).isTrue();
+        }
+
+        assertThat(pool.getPooledBytes()).isEqualTo(1 << 20);
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        Argon2MemoryPool pool = new Argon2MemoryPool(1 << 20, 0, TimeUnit.MILLISECONDS);
+        Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id, Argon2Constants.DEFAULT_SALT_LENGTH, Argon2Constants.DEFAULT_HASH_LENGTH, pool);
+
+        // Too big for the pool
+        argon2.hash(1, 2048, 1, PASSWORD);
+        assertThat(pool.getPooledBytes()).isEqualTo(0);
+
+        argon2.hash(1, 1024, 1, PASSWORD);
+        assertThat(pool.getPooledBytes()).isEqualTo(1 << 20);
+
+        Thread.sleep(5);
+        pool.trim();
+        assertThat(pool.getPooledBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void testClear() {
+        Argon2MemoryPool pool = new Argon2MemoryPool(1 << 20, 1, TimeUnit.MINUTES);
+        Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id, Argon2Constants.DEFAULT_SALT_LENGTH, Argon2Constants.DEFAULT_HASH_LENGTH, pool);
+
+        argon2.hash(1, 512, 1, PASSWORD);
+        assertThat(pool.getPooledBytes()).isEqualTo(512 * 1024);
+
+        pool.clear();
+        assertThat(pool.getPooledBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void testHugePages() {
+        Argon2MemoryPool pool = new Argon2MemoryPool(64L << 20, 1, TimeUnit.MINUTES, true);
+        Argon2Advanced plain = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+        Argon2Advanced pooled = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id, Argon2Constants.DEFAULT_SALT_LENGTH, Argon2Constants.DEFAULT_HASH_LENGTH, pool);
+
+        // Whether huge pages are used depends on the kernel, the hashes must be the same in any case
+        String hash = plain.hash(1, 8192, 1, PASSWORD);
+        assertThat(pooled.verify(hash, PASSWORD)).isTrue();
+        assertThat(pooled.verify(hash, "not-the-password".getBytes(StandardCharsets.UTF_8))).isFalse();
+        assertThat(pool.getPooledBytes()).isEqualTo(8L << 20);
+
+        pool.clear();
+        assertThat(pool.getPooledBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void testBlockSize() {
+        assertThat(Argon2MemoryPool.blockSize(1)).isEqualTo(1024);
+        assertThat(Argon2MemoryPool.blockSize(1024)).isEqualTo(1024);
+        assertThat(Argon2MemoryPool.blockSize(1025)).isEqualTo(2048);
+        assertThat(Argon2MemoryPool.blockSize(64L << 20)).isEqualTo(64L << 20);
+        assertThat(Argon2MemoryPool.blockSize(100 * 1024)).isEqualTo(128 * 1024);
+    }
+}
@@ -0,0 +1,74 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Argon2SchedulerTest {
+    @Test
+    public void testHashAndVerify() throws Exception {
+        Argon2Scheduler scheduler = new Argon2Scheduler(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id));
+        try {
+            String hash = scheduler.hash(Argon2Scheduler.Priority.REGISTRATION, 1, 1024, 1, "password".toCharArray()).get();
+            assertThat(scheduler.verify(Argon2Scheduler.Priority.INTERACTIVE, hash, "password".toCharArray()).get()).isTrue();
+            assertThat(scheduler.verify(Argon2Scheduler.Priority.INTERACTIVE, hash, "not-the-password".toCharArray()).get()).isFalse();
+            assertThat(scheduler.pbkdf(Argon2Scheduler.Priority.BACKGROUND, 1, 1024, 1, new byte[8], new byte[16], 32).get()).hasSize(32);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testPriorities() throws Exception {
+        assertThat(runOrder(1, TimeUnit.MINUTES)).containsExactly(
+                Argon2Scheduler.Priority.INTERACTIVE, Argon2Scheduler.Priority.REGISTRATION, Argon2Scheduler.Priority.BACKGROUND
+        );
+    }
+
+    @Test
+    public void testAging() throws Exception {
+        // Without aging time, the tasks run in order of submission
+        assertThat(runOrder(0, TimeUnit.MINUTES)).containsExactly(
+                Argon2Scheduler.Priority.BACKGROUND, Argon2Scheduler.Priority.REGISTRATION, Argon2Scheduler.Priority.INTERACTIVE
+        );
+    }
+
+    private List<Argon2Scheduler.Priority> runOrder(long agingTime, TimeUnit unit) throws Exception {
+        Argon2Scheduler scheduler = new Argon2Scheduler(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id), 1, agingTime, unit);
+        try {
+            // Keeps the only worker busy until all tasks are queued
+            CountDownLatch latch = new CountDownLatch(1);
+            Future<Object> blocker = scheduler.submit(Argon2Scheduler.Priority.INTERACTIVE, () -> {
+                latch.await();
+                return null;
+            });
+
+            List<Argon2Scheduler.Priority> order = Collections.synchronizedList(new ArrayList<>());
+            List<Future<Object>> futures = new ArrayList<>();
+            for (Argon2Scheduler.Priority priority : new Argon2Scheduler.Priority[]{
+                    Argon2Scheduler.Priority.BACKGROUND, Argon2Scheduler.Priority.REGISTRATION, Argon2Scheduler.Priority.INTERACTIVE
+            }) {
+                futures.add(scheduler.submit(priority, () -> {
+                    order.add(priority);
+                    return null;
+                }));
+            }
+
+            latch.countDown();
+            blocker.get();
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+            return order;
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Argon2SingleFlightTest {
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testVerify() {
+        Argon2SingleFlight argon2 = new Argon2SingleFlight(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id));
+        String hash = argon2.hash(1, 1024, 1, PASSWORD);
+
+        assertThat(argon2.verify(hash, PASSWORD)).isTrue();
+        assertThat(argon2.verify(hash, "password")).isTrue();
+        assertThat(argon2.verify(hash, "password".toCharArray(), StandardCharsets.UTF_8)).isTrue();
+        assertThat(argon2.verify(hash, "not-the-password".toCharArray())).isFalse();
+        assertThat(argon2.verify("not-a-hash", PASSWORD)).isFalse();
+        assertThat(argon2.getCoalescedCount()).isEqualTo(0);
+        assertThat(argon2.getInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+        assertCoalesced(argon2.hash(1, 1024, 1, PASSWORD));
+    }
+
+    @Test
+    public void testCoalesceWithoutVersion() throws Exception {
+        // Hashes of version 1.0 may come without a version
+        Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+        assertCoalesced(argon2.hashAdvanced(1, 1024, 1, PASSWORD, argon2.generateSalt(), 16, Argon2Version.V10)
+                .getEncoded().replace("$v=16", ""));
+    }
+
+    private void assertCoalesced(String hash) throws Exception {
+        // The load shedder has one slot, which is taken until all verifications have arrived
+        Argon2LoadShedder shedder = new Argon2LoadShedder(Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id), 1);
+        Argon2SingleFlight argon2 = new Argon2SingleFlight(shedder);
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            shedder.enter(1, 1024);
+            try {
+                for (int i = 0; i < 4; i++) {
+                    results.add(executor.submit(() -> argon2.verify(hash, "password".toCharArray())));
+                }
+                results.add(executor.submit(() -> argon2.verify(hash, "not-the-password".toCharArray())));
+
+                while (argon2.getCoalescedCount() < 3 || argon2.getInFlightCount() < 2) {
+                    Thread.sleep(10);
+                }
+            } finally {
+                shedder.exit(1, 1024, 0);
+            }
+
+            for (int i = 0; i < 4; i++) {
+                assertThat(results.get(i).get()).isTrue();
+            }
+            assertThat(results.get(4).get()).isFalse();
+            assertThat(argon2.getCoalescedCount()).isEqualTo(3);
+            assertThat(argon2.getInFlightCount()).isEqualTo(0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
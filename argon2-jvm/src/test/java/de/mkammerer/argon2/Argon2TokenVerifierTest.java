@@ -0,0 +1,74 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Argon2TokenVerifierTest {
+    private static final byte[] TOKEN = "tGx7Qb2mW9pLk4rZ8vNc".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OTHER_TOKEN = "aF3jK8sD1qP6wE9rT2yU".getBytes(StandardCharsets.UTF_8);
+
+    private final Argon2 argon2 = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2id);
+
+    @Test
+    public void testVerify() {
+        Argon2TokenVerifier verifier = new Argon2TokenVerifier(argon2, 100, 1, TimeUnit.MINUTES);
+        String hash = argon2.hash(1, 1024, 1, TOKEN);
+
+        assertThat(verifier.verify(hash, TOKEN)).isTrue();
+        assertThat(verifier.getHitCount()).isEqualTo(0);
+        assertThat(verifier.verify(hash, new String(TOKEN, StandardCharsets.UTF_8).toCharArray())).isTrue();
+        assertThat(verifier.getHitCount()).isEqualTo(1);
+
+        // Failed verifications aren't remembered
+        assertThat(verifier.verify(hash, OTHER_TOKEN)).isFalse();
+        assertThat(verifier.verify(hash, OTHER_TOKEN)).isFalse();
+        assertThat(verifier.verify("not-a-hash", TOKEN)).isFalse();
+        assertThat(verifier.getHitCount()).isEqualTo(1);
+
+        verifier.invalidateAll();
+        assertThat(verifier.verify(hash, TOKEN)).isTrue();
+        assertThat(verifier.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        Argon2TokenVerifier verifier = new Argon2TokenVerifier(argon2, 100, 50, TimeUnit.MILLISECONDS);
+        String hash = argon2.hash(1, 1024, 1, TOKEN);
+
+        assertThat(verifier.verify(hash, TOKEN)).isTrue();
+        Thread.sleep(100);
+        assertThat(verifier.verify(hash, TOKEN)).isTrue();
+        assertThat(verifier.getHitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testEviction() {
+        Argon2TokenVerifier verifier = new Argon2TokenVerifier(argon2, 1, 1, TimeUnit.MINUTES);
+        String hash = argon2.hash(1, 1024, 1, TOKEN);
+        String otherHash = argon2.hash(1, 1024, 1, OTHER_TOKEN);
+
+        assertThat(verifier.verify(hash, TOKEN)).isTrue();
+        assertThat(verifier.verify(otherHash, OTHER_TOKEN)).isTrue();
+        assertThat(verifier.verify(otherHash, OTHER_TOKEN)).isTrue();
+        assertThat(verifier.getHitCount()).isEqualTo(1);
+        // Has been replaced by the other token
+        assertThat(verifier.verify(hash, TOKEN)).isTrue();
+        assertThat(verifier.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testShortToken() {
+        Argon2TokenVerifier verifier = new Argon2TokenVerifier(argon2, 100, 1, TimeUnit.MINUTES);
+        String hash = argon2.hash(1, 1024, 1, "password");
+
+        assertThatThrownBy(() -> verifier.verify(hash, "password".toCharArray())).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Argon2TokenVerifier(argon2, 0, 1, TimeUnit.MINUTES)).isInstanceOf(IllegalArgumentException.class);
+        // The table would need more than 2 GiB
+        assertThatThrownBy(() -> new Argon2TokenVerifier(argon2, 60_000_000, 1, TimeUnit.MINUTES)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,33 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HkdfTest {
+    @Test
+    public void testRfc5869() {
+        // Test case 1 of RFC 5869, starting with the PRK
+        byte[] prk = hex("077709362c2e32df0ddc3f0dc47bba6390b6c73bb50f9c3122ec844ad7c2b3e5");
+        byte[] info = hex("f0f1f2f3f4f5f6f7f8f9");
+
+        assertThat(Hkdf.expand(prk, info, 42)).isEqualTo(hex("3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865"));
+    }
+
+    @Test
+    public void testLength() {
+        byte[] prk = new byte[32];
+        assertThatThrownBy(() -> Hkdf.expand(prk, new byte[0], 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Hkdf.expand(prk, new byte[0], 255 * 32 + 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(Hkdf.expand(prk, new byte[0], 255 * 32)).hasSize(255 * 32);
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,31 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HugePagesTest {
+    private static final String SMAPS = "55d4c0a00000-55d4c0a21000 rw-p 00000000 00:00 0                          [heap]\n" +
+            "Size:                132 kB\n" +
+            "AnonHugePages:         0 kB\n" +
+            "VmFlags: rd wr mr mw me ac sd\n" +
+            "7f2a00000000-7f2a04000000 rw-p 00000000 00:00 0\n" +
+            "Size:              65536 kB\n" +
+            "AnonHugePages:     63488 kB\n" +
+            "VmFlags: rd wr mr mw me ac sd hg\n";
+
+    @Test
+    public void testAnonHugePages() throws Exception {
+        assertThat(HugePages.anonHugePages(smaps(), 0x7f2a00000000L)).isEqualTo(63488);
+        assertThat(HugePages.anonHugePages(smaps(), 0x7f2a03ffffffL)).isEqualTo(63488);
+        assertThat(HugePages.anonHugePages(smaps(), 0x55d4c0a00010L)).isEqualTo(0);
+        assertThat(HugePages.anonHugePages(smaps(), 0x7f2a04000000L)).isEqualTo(0);
+    }
+
+    private static BufferedReader smaps() {
+        return new BufferedReader(new StringReader(SMAPS));
+    }
+}
@@ -0,0 +1,54 @@
+package de.mkammerer.argon2;
+
+import de.mkammerer.argon2.base.AbstractArgonTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JavaArgon2iTest extends AbstractArgonTest {
+    @Override
+    protected Argon2Advanced createSut() {
+        return Argon2Factory.createJavaAdvanced(Argon2Factory.Argon2Types.ARGON2i);
+    }
+
+    @Override
+    protected String getHashPrefix() {
+        return "$argon2i$";
+    }
+
+    @Test
+    public void testHashWithSalt() {
+        String hash = getSut().hash(ITERATIONS, MEMORY, PARALLELISM, PASSWORD.toCharArray(), UTF8, getFixedSalt());
+
+        assertThat(hash).isEqualTo("$argon2i$v=19$m=1024,t=2,p=1$dGhpc2lzdGhlc2FsdA$kIaBJZgiRxlQSTodxlztJK0wornqf0gvK/g0dNrcXpw");
+    }
+
+    @Test
+    public void testSameHashAsNative() {
+        Argon2Advanced nativeArgon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2i);
+        byte[] password = PASSWORD.getBytes(UTF8);
+        byte[] salt = getFixedSalt();
+        byte[] secret = SECRET.getBytes(UTF8);
+        byte[] ad = ASSOCIATED_DATA.getBytes(UTF8);
+
+        for (Argon2Version version : Argon2Version.values()) {
+            for (int parallelism = 1; parallelism <= 4; parallelism++) {
+                byte[] expected = nativeArgon2.rawHashAdvanced(ITERATIONS, MEMORY, parallelism, password, salt, secret, ad, 100, version);
+
+                assertThat(getSut().rawHashAdvanced(ITERATIONS, MEMORY, parallelism, password, salt, secret, ad, 100, version)).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testVerifyNativeHash() {
+        Argon2 nativeArgon2 = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2i);
+
+        String nativeHash = nativeArgon2.hash(ITERATIONS, MEMORY, 4, PASSWORD.toCharArray());
+        assertThat(getSut().verify(nativeHash, PASSWORD.toCharArray())).isTrue();
+        assertThat(getSut().verify(nativeHash, NOT_THE_PASSWORD.toCharArray())).isFalse();
+
+        String javaHash = getSut().hash(ITERATIONS, MEMORY, 4, PASSWORD.toCharArray());
+        assertThat(nativeArgon2.verify(javaHash, PASSWORD.toCharArray())).isTrue();
+    }
+}
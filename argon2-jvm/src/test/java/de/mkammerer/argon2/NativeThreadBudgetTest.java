@@ -0,0 +1,64 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NativeThreadBudgetTest {
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testAcquire() {
+        NativeThreadBudget budget = new NativeThreadBudget();
+        budget.setLimit(4);
+
+        assertThat(budget.acquire(3)).isEqualTo(3);
+        // Only one thread left
+        assertThat(budget.acquire(4)).isEqualTo(1);
+        // Used up, the calling thread computes the lanes
+        assertThat(budget.acquire(4)).isEqualTo(1);
+        assertThat(budget.getUsed()).isEqualTo(5);
+
+        budget.release(3);
+        budget.release(1);
+        budget.release(1);
+        assertThat(budget.getUsed()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDisabled() {
+        NativeThreadBudget budget = new NativeThreadBudget();
+        assertThat(budget.isEnabled()).isFalse();
+        assertThat(budget.acquire(8)).isEqualTo(8);
+
+        // Enabled while the threads are in use
+        budget.setLimit(4);
+        assertThat(budget.acquire(4)).isEqualTo(1);
+        budget.release(8);
+        budget.release(1);
+        assertThat(budget.getUsed()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSameHashes() {
+        for (Argon2Factory.Argon2Types type : Argon2Factory.Argon2Types.values()) {
+            Argon2Advanced argon2 = Argon2Factory.createAdvanced(type);
+            byte[] salt = argon2.generateSalt();
+            String hash = argon2.hash(2, 1024, 4, "password".toCharArray(), StandardCharsets.UTF_8, salt);
+            byte[] rawHash = argon2.rawHash(2, 1024, 4, PASSWORD, salt);
+
+            Argon2Factory.setNativeThreadBudget(2);
+            try {
+                assertThat(argon2.hash(2, 1024, 4, "password".toCharArray(), StandardCharsets.UTF_8, salt)).isEqualTo(hash);
+                assertThat(argon2.rawHash(2, 1024, 4, PASSWORD, salt)).isEqualTo(rawHash);
+                assertThat(argon2.verify(hash, PASSWORD)).isTrue();
+                assertThat(argon2.verify(hash, "not-the-password".getBytes(StandardCharsets.UTF_8))).isFalse();
+                assertThat(NativeThreadBudget.GLOBAL.getUsed()).isEqualTo(0);
+            } finally {
+                Argon2Factory.setNativeThreadBudget(0);
+            }
+        }
+    }
+}
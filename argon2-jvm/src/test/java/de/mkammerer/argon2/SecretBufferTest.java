@@ -0,0 +1,60 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SecretBufferTest {
+    @Test
+    public void testAppend() {
+        try (SecretBuffer buffer = new SecretBuffer(32)) {
+            CharBuffer chars = CharBuffer.wrap("word");
+            buffer.append("pass".toCharArray()).append(chars);
+
+            assertThat(chars.hasRemaining()).isFalse();
+            assertThat(buffer.length()).isEqualTo(8);
+            assertThat(bytes(buffer)).isEqualTo("password".getBytes(StandardCharsets.UTF_8));
+
+            buffer.clear();
+            assertThat(buffer.length()).isZero();
+        }
+    }
+
+    @Test
+    public void testSurrogatePairAcrossAppends() {
+        try (SecretBuffer buffer = new SecretBuffer(32)) {
+            buffer.append(new char[]{'p', '\uD83D'}).append(new char[]{'\uDE00', 'w'});
+
+            assertThat(bytes(buffer)).isEqualTo("p😀w".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testOverflow() {
+        try (SecretBuffer buffer = new SecretBuffer(4)) {
+            assertThatThrownBy(() -> buffer.append("password".toCharArray())).isInstanceOf(IllegalArgumentException.class);
+            // The partial password has been wiped
+            assertThat(buffer.length()).isZero();
+        }
+    }
+
+    @Test
+    public void testClose() {
+        SecretBuffer buffer = new SecretBuffer(32);
+        buffer.append("password".toCharArray());
+        buffer.close();
+        buffer.close();
+
+        assertThatThrownBy(() -> buffer.append("password".toCharArray())).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static byte[] bytes(SecretBuffer buffer) {
+        byte[] result = new byte[buffer.length()];
+        buffer.buffer().get(result);
+        return result;
+    }
+}
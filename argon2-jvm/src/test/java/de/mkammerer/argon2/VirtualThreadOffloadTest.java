@@ -0,0 +1,59 @@
+package de.mkammerer.argon2;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class VirtualThreadOffloadTest {
+    @Test
+    public void testThreads() {
+        assertThat(Argon2Factory.getVirtualThreadOffload()).isEqualTo(0);
+        assertThat(VirtualThreadOffload.isVirtual(Thread.currentThread())).isFalse();
+        assertThatThrownBy(() -> Argon2Factory.setVirtualThreadOffload(-1)).isInstanceOf(IllegalArgumentException.class);
+
+        Argon2Factory.setVirtualThreadOffload(2);
+        try {
+            assertThat(Argon2Factory.getVirtualThreadOffload()).isEqualTo(2);
+            // Platform threads hash directly
+            assertThat(VirtualThreadOffload.isNeeded()).isFalse();
+        } finally {
+            Argon2Factory.setVirtualThreadOffload(0);
+        }
+    }
+
+    @Test
+    public void testSameHashesOnVirtualThread() throws Exception {
+        Method startVirtualThread;
+        try {
+            startVirtualThread = Thread.class.getMethod("startVirtualThread", Runnable.class);
+        } catch (NoSuchMethodException e) {
+            // No virtual threads before Java 21
+            return;
+        }
+
+        Argon2Advanced argon2 = Argon2Factory.createAdvanced(Argon2Factory.Argon2Types.ARGON2id);
+        byte[] salt = argon2.generateSalt();
+        String hash = argon2.hash(2, 1024, 2, "password".toCharArray(), StandardCharsets.UTF_8, salt);
+
+        Argon2Factory.setVirtualThreadOffload(1);
+        try {
+            AtomicReference<String> virtualHash = new AtomicReference<>();
+            AtomicReference<Boolean> needed = new AtomicReference<>();
+            Thread thread = (Thread) startVirtualThread.invoke(null, (Runnable) () -> {
+                needed.set(VirtualThreadOffload.isNeeded());
+                virtualHash.set(argon2.hash(2, 1024, 2, "password".toCharArray(), StandardCharsets.UTF_8, salt));
+            });
+            thread.join();
+
+            assertThat(needed.get()).isTrue();
+            assertThat(virtualHash.get()).isEqualTo(hash);
+        } finally {
+            Argon2Factory.setVirtualThreadOffload(0);
+        }
+    }
+}
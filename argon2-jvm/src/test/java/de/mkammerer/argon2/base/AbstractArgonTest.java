@@ -2,15 +2,30 @@ package de.mkammerer.argon2.base;
 
 import de.mkammerer.argon2.Argon2Advanced;
 import de.mkammerer.argon2.Argon2Constants;
+import de.mkammerer.argon2.Argon2Factory;
 import de.mkammerer.argon2.Argon2Version;
 import de.mkammerer.argon2.HashResult;
+import de.mkammerer.argon2.RehashResult;
+import de.mkammerer.argon2.SecretBuffer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -337,6 +352,188 @@ public abstract class AbstractArgonTest {
         assertThat(salt1).isNotEqualTo(salt2);
     }
 
+    @Test
+    public void testFileChannel(@TempDir Path directory) throws Exception {
+        byte[] content = new byte[100000];
+        random.nextBytes(content);
+        Path file = Files.write(directory.resolve("key"), content);
+        byte[] salt = createSalt();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThat(sut.pbkdf(ITERATIONS, MEMORY, PARALLELISM, channel, salt, 32)).isEqualTo(sut.pbkdf(ITERATIONS, MEMORY, PARALLELISM, content, salt, 32));
+
+            String hash = sut.hash(ITERATIONS, MEMORY, PARALLELISM, channel);
+            assertThat(hash).startsWith(prefix);
+            assertThat(sut.verify(hash, content)).isTrue();
+        }
+        // The file hasn't been wiped
+        assertThat(Files.readAllBytes(file)).isEqualTo(content);
+    }
+
+    @Test
+    public void testByteBuffers() throws Exception {
+        byte[] password = PASSWORD.getBytes(UTF8);
+        byte[] salt = createSalt();
+        byte[] secret = SECRET.getBytes(ASCII);
+        byte[] associatedData = ASSOCIATED_DATA.getBytes(ASCII);
+        byte[] expected = sut.rawHashAdvanced(ITERATIONS, MEMORY, PARALLELISM, password, salt, secret, associatedData, 32, Argon2Version.V13);
+
+        ByteBuffer hash = ByteBuffer.allocateDirect(32);
+        sut.rawHashAdvanced(ITERATIONS, MEMORY, PARALLELISM, direct(password), direct(salt), direct(secret), direct(associatedData), hash, Argon2Version.V13);
+        byte[] actual = new byte[32];
+        hash.duplicate().get(actual);
+        assertThat(actual).isEqualTo(expected);
+
+        ByteBuffer heapHash = ByteBuffer.allocate(32);
+        sut.rawHashAdvanced(ITERATIONS, MEMORY, PARALLELISM, ByteBuffer.wrap(password), ByteBuffer.wrap(salt), ByteBuffer.wrap(secret), ByteBuffer.wrap(associatedData), heapHash, Argon2Version.V13);
+        assertThat(heapHash.array()).isEqualTo(expected);
+
+        assertThat(sut.verifyAdvanced(ITERATIONS, MEMORY, PARALLELISM, direct(password), direct(salt), direct(secret), direct(associatedData), hash, Argon2Version.V13)).isTrue();
+        assertThat(sut.verifyAdvanced(ITERATIONS, MEMORY, PARALLELISM, direct(NOT_THE_PASSWORD.getBytes(UTF8)), direct(salt), direct(secret), direct(associatedData), hash, Argon2Version.V13)).isFalse();
+        assertThat(sut.verifyAdvanced(ITERATIONS, MEMORY, PARALLELISM, direct(password), direct(salt), null, null, hash, Argon2Version.V13)).isFalse();
+
+        String encoded = sut.hash(ITERATIONS, MEMORY, PARALLELISM, PASSWORD.toCharArray());
+        ByteBuffer directPassword = direct(password);
+        assertThat(sut.verify(encoded, directPassword)).isTrue();
+        assertThat(sut.verify(encoded, ByteBuffer.wrap(password))).isTrue();
+        assertThat(sut.verify(encoded, direct(NOT_THE_PASSWORD.getBytes(UTF8)))).isFalse();
+        // The buffer belongs to the caller, it is neither moved nor wiped
+        assertThat(directPassword.position()).isEqualTo(1);
+        assertThat(directPassword.get(1)).isEqualTo(password[0]);
+
+        assertThatThrownBy(() -> sut.rawHashAdvanced(ITERATIONS, MEMORY, PARALLELISM, direct(password), direct(salt), null, null, ByteBuffer.allocateDirect(32).asReadOnlyBuffer(), Argon2Version.V13))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testSecretBuffer() throws Exception {
+        byte[] salt = createSalt();
+        byte[] secret = SECRET.getBytes(ASCII);
+        byte[] expected = sut.rawHashAdvanced(ITERATIONS, MEMORY, PARALLELISM, PASSWORD.getBytes(UTF8), salt, secret, null, 32, Argon2Version.V13);
+
+        try (SecretBuffer password = new SecretBuffer(64)) {
+            assertThat(sut.rawHashAdvanced(ITERATIONS, MEMORY, PARALLELISM, password.append(PASSWORD.toCharArray()), salt, secret, null, 32, Argon2Version.V13)).isEqualTo(expected);
+            // The password is consumed
+            assertThat(password.length()).isZero();
+            assertThat(secret).isEqualTo(SECRET.getBytes(ASCII));
+
+            String hash = sut.hash(ITERATIONS, MEMORY, PARALLELISM, password.append(PASSWORD.toCharArray()));
+            assertThat(hash).startsWith(prefix);
+            assertThat(sut.verify(hash, PASSWORD)).isTrue();
+            assertThat(sut.verify(hash, password.append(PASSWORD.toCharArray()))).isTrue();
+            assertThat(sut.verify(hash, password.append(NOT_THE_PASSWORD.toCharArray()))).isFalse();
+            assertThat(password.length()).isZero();
+        }
+
+        // libargon2 rejects the memory before hashing, so it neither wipes the password nor resets its length. The
+        // password is longer than the salt, the salt must still only be wiped with its own length
+        char[] longPassword = new char[200];
+        Arrays.fill(longPassword, 'x');
+        try (SecretBuffer password = new SecretBuffer(256)) {
+            assertThatThrownBy(() -> sut.rawHashAdvanced(ITERATIONS, 1, PARALLELISM, password.append(longPassword), salt, secret, null, 32, Argon2Version.V13))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThat(password.length()).isZero();
+            assertThatThrownBy(() -> sut.hash(ITERATIONS, 1, PARALLELISM, password.append(longPassword)))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThat(password.length()).isZero();
+        }
+        assertThat(sut.rawHashAdvanced(ITERATIONS, MEMORY, PARALLELISM, PASSWORD.getBytes(UTF8), salt, secret, null, 32, Argon2Version.V13)).isEqualTo(expected);
+    }
+
+    /**
+     * Copies the data into a direct buffer, with the position at 1 to make sure that offsets are respected.
+     */
+    private static ByteBuffer direct(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 1);
+        buffer.put((byte) 0).put(data).flip();
+        buffer.position(1);
+        return buffer;
+    }
+
+    @Test
+    public void testDeriveKeys() throws Exception {
+        byte[] salt = createSalt();
+        byte[][] keys = sut.deriveKeys(ITERATIONS, MEMORY, PARALLELISM, PASSWORD.getBytes(UTF8), salt, new String[]{"encryption", "mac"}, 32);
+
+        assertThat(keys).hasDimensions(2, 32);
+        assertThat(keys[0]).isNotEqualTo(keys[1]);
+        // The keys only depend on the password, the salt and the label
+        assertThat(sut.deriveKeys(ITERATIONS, MEMORY, PARALLELISM, PASSWORD.toCharArray(), UTF8, salt, new String[]{"mac"}, 32)[0]).isEqualTo(keys[1]);
+        assertThat(sut.deriveKeys(ITERATIONS, MEMORY, PARALLELISM, NOT_THE_PASSWORD.getBytes(UTF8), salt, new String[]{"mac"}, 32)[0]).isNotEqualTo(keys[1]);
+
+        assertThatThrownBy(() -> sut.deriveKeys(ITERATIONS, MEMORY, PARALLELISM, PASSWORD.getBytes(UTF8), salt, new String[]{"mac", "mac"}, 32))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> sut.deriveKeys(ITERATIONS, MEMORY, PARALLELISM, PASSWORD.getBytes(UTF8), salt, new String[0], 32))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testVerifyAndRehash() throws Exception {
+        String hash = sut.hash(1, 256, PARALLELISM, PASSWORD.toCharArray());
+
+        RehashResult result = sut.verifyAndRehash(hash, PASSWORD.toCharArray(), ITERATIONS, MEMORY, PARALLELISM);
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.isRehashed()).isTrue();
+        assertThat(result.getNewHash()).startsWith(prefix);
+        assertThat(sut.needsRehash(result.getNewHash(), ITERATIONS, MEMORY, PARALLELISM)).isFalse();
+        assertThat(sut.verify(result.getNewHash(), PASSWORD.toCharArray())).isTrue();
+
+        result = sut.verifyAndRehash(result.getNewHash(), PASSWORD.toCharArray(), ITERATIONS, MEMORY, PARALLELISM);
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.isRehashed()).isFalse();
+
+        result = sut.verifyAndRehash(hash, NOT_THE_PASSWORD.toCharArray(), ITERATIONS, MEMORY, PARALLELISM, Runnable::run);
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getNewHash()).isNull();
+
+        assertThat(sut.verifyAndRehash("not-a-hash", PASSWORD.toCharArray(), ITERATIONS, MEMORY, PARALLELISM).isValid()).isFalse();
+    }
+
+    @Test
+    public void testVerifyAndRehashOtherType() throws Exception {
+        String hash = Argon2Factory.create(Argon2Factory.Argon2Types.ARGON2i).hash(ITERATIONS, MEMORY, PARALLELISM, PASSWORD.toCharArray());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RehashResult result = sut.verifyAndRehash(hash, PASSWORD.toCharArray(), ITERATIONS, MEMORY, PARALLELISM, executor);
+            assertThat(result.isValid()).isTrue();
+            assertThat(result.isRehashed()).isEqualTo(!prefix.equals("$argon2i$"));
+            if (result.isRehashed()) {
+                assertThat(result.getNewHash()).startsWith(prefix);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testHashAllAndVerifyAll() throws Exception {
+        List<char[]> passwords = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            passwords.add((PASSWORD + i).toCharArray());
+        }
+        String[] hashes = sut.hashAll(1, 256, PARALLELISM, passwords);
+
+        assertThat(hashes).hasSize(50);
+        for (int i = 0; i < hashes.length; i++) {
+            assertThat(hashes[i].startsWith(prefix)).isTrue();
+        }
+        assertThat(sut.verify(hashes[42], (PASSWORD + 42).toCharArray())).isTrue();
+
+        List<char[]> toVerify = new ArrayList<>(passwords);
+        toVerify.set(7, NOT_THE_PASSWORD.toCharArray());
+        boolean[] result = sut.verifyAll(Arrays.asList(hashes), toVerify);
+
+        assertThat(result).hasSize(50);
+        for (int i = 0; i < result.length; i++) {
+            assertThat(result[i]).isEqualTo(i != 7);
+        }
+
+        assertThat(sut.hashAll(1, 256, PARALLELISM, Collections.<char[]>emptyList())).isEmpty();
+        assertThatThrownBy(() -> sut.verifyAll(Arrays.asList(hashes), Collections.<char[]>emptyList()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     protected byte[] getFixedSalt() {
         return "thisisthesalt".getBytes(UTF8);
     }
@@ -0,0 +1,12 @@
+package de.mkammerer.argon2.jna;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Argon2LibraryLoaderTest {
+    @Test
+    public void testNativeLibrary() {
+        assertThat(Argon2LibraryLoader.getNativeLibrary().getFunction("argon2_hash")).isNotNull();
+    }
+}